@@ -0,0 +1,79 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sudoku for benchmarks graded by the older method which is needed to finish them, the default solver needs
+ * less for most of them thanks to singles and locked candidates. Puzzles are taken from
+ * {@code SolverTest} and {@link TempExamples}, one per line row by row, or made by {@link Generator}.
+ */
+public enum Corpus {
+
+    //Small squares method is enough, as are singles
+    EASY(
+            "421706090830240071069803405540000000900182350083490200098074136010060500600021089",
+            "516003480080054200004090107920000301063740800008930672890006723040500068002300000",
+            "820000450009040003004586020700628900080054002063001584300075290500102300070830160",
+            "104200078000500004093007010000900031208134000001085046076840000300052000002001965",
+            "807400020201000509030800700000963000009027048720000006000005230150009000000704800"),
+    //Column-rows method is needed, singles are enough
+    MEDIUM(
+            "250107090000000023809004007001030600370608010000200049600700002038900000740800000",
+            "000700912800000000003900000400000009690004207000500800000001073207300000008000400",
+            "090007002140030000508000070030800000005000400700004005000070190900002000010090080"),
+    //Older methods get stuck, search is needed
+    HARD(
+            "000000000010079020400080500021000009070000000000620780564000000000050030000000651",
+            "800000000003600000070090200050007000000045700000100030001000068008500010090000400"),
+    //Puzzles of the generator which need search
+    GENERATED();
+
+    private static final int GENERATED_AMOUNT = 100;
+    //Puzzles generated at once while looking for expert ones
+    private static final int GENERATED_BATCH_SIZE = 64;
+    private static final long SEED = 42;
+    private static final int LINE_SIZE = Geometry.STANDARD.getLineSize();
+
+    private final String[] puzzles;
+
+    Corpus(String... puzzles) {
+        this.puzzles = puzzles;
+    }
+
+    public int[][][] getPuzzles() {
+        if (this == GENERATED) {
+            return generate();
+        }
+        int[][][] result = new int[puzzles.length][][];
+        for (int i = 0; i < puzzles.length; i++) {
+            result[i] = parse(puzzles[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Takes puzzles of the generator graded {@link Difficulty#EXPERT} in order of their index, so the corpus is the
+     * same on every run. They are minimal and have a unique solution.
+     */
+    private static int[][][] generate() {
+        Generator generator = new Generator(SEED);
+        List<int[][]> result = new ArrayList<>();
+        for (long index = 0; result.size() < GENERATED_AMOUNT; index += GENERATED_BATCH_SIZE) {
+            for (GeneratedPuzzle puzzle : generator.generate(index, GENERATED_BATCH_SIZE)) {
+                if (puzzle.getDifficulty() == Difficulty.EXPERT && result.size() < GENERATED_AMOUNT) {
+                    result.add(puzzle.getPuzzle());
+                }
+            }
+        }
+        return result.toArray(new int[result.size()][][]);
+    }
+
+    private static int[][] parse(String line) {
+        int[][] sudoku = new int[LINE_SIZE][LINE_SIZE];
+        for (int i = 0; i < LINE_SIZE * LINE_SIZE; i++) {
+            sudoku[i / LINE_SIZE][i % LINE_SIZE] = line.charAt(i) - '0';
+        }
+        return sudoku;
+    }
+}
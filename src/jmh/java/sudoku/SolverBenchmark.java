@@ -0,0 +1,125 @@
+package sudoku;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every operation takes the next sudoku of the corpus. Run {@link #main} for time per sudoku and throughput
+ * with allocation rate, or {@code java -jar target/benchmarks.jar -prof gc} to pass JMH options.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+    private static final int LINE_SIZE = Geometry.STANDARD.getLineSize();
+
+    @Param({"EASY", "MEDIUM", "HARD", "GENERATED"})
+    private Corpus corpus;
+
+    private int[][][] puzzles;
+    private final int[][] sudoku = new int[LINE_SIZE][LINE_SIZE];
+    private int index;
+    private Solver solver;
+    //Runs only the older methods, each one with the cheaper ones, as singles of the default solver would do their work
+    private Solver methodsSolver;
+    private SolutionCache cache;
+
+    public static void main(String[] args) throws RunnerException {
+        run(Mode.AverageTime, TimeUnit.NANOSECONDS);
+        run(Mode.Throughput, TimeUnit.SECONDS);
+    }
+
+    private static void run(Mode mode, TimeUnit timeUnit) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SolverBenchmark.class.getSimpleName())
+                .mode(mode)
+                .timeUnit(timeUnit)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        puzzles = corpus.getPuzzles();
+        solver = new Solver();
+        methodsSolver = new Solver(Geometry.STANDARD, false,
+                EnumSet.of(Technique.SMALL_SQUARES, Technique.COLUMN_ROWS, Technique.LOCAL_TABLES));
+        cache = new SolutionCache(puzzles.length);
+        for (int i = 0; i < puzzles.length; i++) {
+            cache.solve(nextSudoku(), solver);
+        }
+    }
+
+    @Benchmark
+    public int[][] smallSquaresMethod() {
+        int[][] next = nextSudoku();
+        methodsSolver.prepare(next);
+        methodsSolver.smallSquaresMethod(next);
+        return next;
+    }
+
+    @Benchmark
+    public int[][] columnRowsMethod() {
+        int[][] next = nextSudoku();
+        methodsSolver.prepare(next);
+        methodsSolver.columnRowsMethod(next);
+        return next;
+    }
+
+    @Benchmark
+    public int[][] localTablesMethod() {
+        int[][] next = nextSudoku();
+        methodsSolver.prepare(next);
+        methodsSolver.localTablesMethod(next);
+        return next;
+    }
+
+    @Benchmark
+    public int[][] solve() {
+        int[][] next = nextSudoku();
+        solver.solve(next);
+        return next;
+    }
+
+    /**
+     * Every sudoku is in the cache, so this is the cost of a hit.
+     */
+    @Benchmark
+    public int[][] cachedSolve() {
+        int[][] next = nextSudoku();
+        cache.solve(next, solver);
+        return next;
+    }
+
+    private int[][] nextSudoku() {
+        int[][] puzzle = puzzles[index];
+        index = (index + 1) % puzzles.length;
+        for (int i = 0; i < LINE_SIZE; i++) {
+            System.arraycopy(puzzle[i], 0, sudoku[i], 0, LINE_SIZE);
+        }
+        return sudoku;
+    }
+}
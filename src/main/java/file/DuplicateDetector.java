@@ -1,95 +1,648 @@
 package file;
 
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
 
-public class DuplicateDetector {
+/**
+ * Finds files with the same content in stages, every stage only looks at files which are still candidates:
+ * files are grouped by size without reading them, then by a hash of their head and tail, and only then by a hash
+ * of the whole content. Most files have a unique size and are never read.
+ * <p>
+ * Directories are walked by a fork-join pool. Files are hashed by a pool of the storage device they are on, so
+ * every device is read by as many threads as it serves best: many for NVMe, a few for a disk or a network share.
+ * Every thread reads through its own direct buffer or windows mapped into memory, so memory use doesn't depend on
+ * the size of files.
+ * <p>
+ * Files are grouped by a fast 128 bit hash kept as two longs, see {@link HashTier}. A group is compared byte by
+ * byte by {@link #confirm} before its files are deleted. With a {@link HashIndex} hashes of files which didn't
+ * change since an earlier run are taken from it instead of reading the files again.
+ */
+public class DuplicateDetector implements Closeable {
 
-    private static final int HASH_SIZE = 16;
     private static final int KB = 1024;
     private static final int MB = 1024 * KB;
+    //Bytes hashed at the start and at the end of a file by the sample stage
+    private static final int SAMPLE_SIZE = 4 * KB;
+    private static final int BUFFER_SIZE = 64 * KB;
+    //Files from this size are hashed through memory mapped windows instead of reads into the buffer
+    private static final long MAPPING_THRESHOLD = 16L * MB;
+    private static final long WINDOW_SIZE = 64L * MB;
+    private static final int DEFAULT_HASH_PARALLELISM = 4;
+    private static final String INDEX_OPTION = "--index=";
     private static final NumberFormat FORMATTER = NumberFormat.getInstance(new Locale("en_US"));
 
-    private static MessageDigest messageDigest;
-    private static long totalLength = 0L;
-
-    static {
-        try {
-            messageDigest = MessageDigest.getInstance("SHA-512");
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalStateException(e.getMessage());
-        }
-    }
+    private final ForkJoinPool walkPool;
+    private final int defaultParallelism;
+    //Threads hashing files of a device by the name of its file store
+    private final Map<String, Integer> deviceParallelism = new ConcurrentHashMap<>();
+    private final Map<String, ExecutorService> hashPools = new ConcurrentHashMap<>();
+    private final ThreadLocal<StreamingHash> hashes;
+    //Null when hashes are not kept between runs
+    private final HashIndex index;
+    private final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    private final LongAdder totalLength = new LongAdder();
 
     public static void main(String[] args) throws IOException {
         if (!checkArgs(args)) {
             return;
         }
 
-        final File dir = new File(args[0]);
-        final Map<String, List<File>> files = new LinkedHashMap<>();
+        final boolean indexed = args[0].startsWith(INDEX_OPTION);
+        final String[] paths = indexed ? Arrays.copyOfRange(args, 1, args.length) : args;
+        final File[] dirs = new File[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            dirs[i] = new File(paths[i]);
+        }
+        try (HashIndex index = indexed
+                ? new HashIndex(Paths.get(args[0].substring(INDEX_OPTION.length())), HashTier.FAST) : null;
+             DuplicateDetector detector = new DuplicateDetector(ForkJoinPool.commonPool(),
+                     DEFAULT_HASH_PARALLELISM, HashTier.FAST, index)) {
+            final List<List<File>> duplicates = new ArrayList<>();
+            for (List<File> group : detector.findDuplicates(dirs)) {
+                duplicates.addAll(detector.confirm(group));
+            }
+
+            System.out.println("Total read megabytes: " + FORMATTER.format(detector.getTotalLength() / MB));
+
+            deleteDuplicates(duplicates, index);
+        }
+    }
+
+    /**
+     * @param walkPool           lists directories
+     * @param defaultParallelism threads hashing files of a device unless {@link #setParallelism} sets another
+     */
+    public DuplicateDetector(ForkJoinPool walkPool, int defaultParallelism) {
+        this(walkPool, defaultParallelism, HashTier.FAST);
+    }
 
-        findDuplicates(files, dir);
+    /**
+     * @param tier hash which groups files
+     */
+    public DuplicateDetector(ForkJoinPool walkPool, int defaultParallelism, HashTier tier) {
+        this(walkPool, defaultParallelism, tier, null);
+    }
 
-        System.out.println("Total read megabytes: " + FORMATTER.format(totalLength / MB));
+    /**
+     * @param index hashes of earlier runs of the same tier, new hashes are added to it. It is closed by the caller
+     */
+    public DuplicateDetector(ForkJoinPool walkPool, int defaultParallelism, HashTier tier, HashIndex index) {
+        checkParallelism(defaultParallelism);
+        if (index != null && index.getTier() != tier) {
+            throw new IllegalArgumentException(String.format("Index of %s hashes can't be used for %s hashes",
+                    index.getTier(), tier));
+        }
+        this.walkPool = walkPool;
+        this.defaultParallelism = defaultParallelism;
+        this.index = index;
+        hashes = ThreadLocal.withInitial(() -> new StreamingHash(tier));
+    }
 
-        deleteDuplicates(files);
+    /**
+     * Sets threads hashing files of the device, takes effect for devices not read yet.
+     *
+     * @param device name of the file store, see {@link java.nio.file.FileStore#name()}
+     */
+    public void setParallelism(String device, int parallelism) {
+        checkParallelism(parallelism);
+        deviceParallelism.put(device, parallelism);
     }
 
     private static boolean checkArgs(String[] args) {
-        if (args == null || args.length < 1) {
-            System.out.println(("Input path must be specified"));
+        if (args == null || args.length < 1 || args.length == 1 && args[0].startsWith(INDEX_OPTION)) {
+            System.out.println(("Input path must be specified, " + INDEX_OPTION
+                    + "<file> keeps hashes for next runs"));
             return false;
         }
         return true;
     }
 
-    private static void findDuplicates(Map<String, List<File>> files, File dir) throws IOException {
-        final File[] listFiles = Optional.ofNullable(dir.listFiles()).orElse(new File[0]);
+    private static void checkParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be positive, but was " + parallelism);
+        }
+    }
+
+    /**
+     * Files are hashed by the pool of their device, a walk switches pools where a directory of another device is
+     * mounted. Devices are told apart by the {@code unix:dev} attribute, where it isn't supported all files under a
+     * directory are hashed by the pool of the directory. A directory given twice or inside another given one is walked once, and a file
+     * found by several paths is in a group only once, so deleting all files of a group but one never deletes the
+     * only copy.
+     *
+     * @return groups of files with the same hash sorted by path, every group has at least two files
+     */
+    public List<List<File>> findDuplicates(File... dirs) throws IOException {
+        final Map<Long, Queue<Candidate>> sizes = new ConcurrentHashMap<>();
+        final List<Walk> walks = new ArrayList<>();
+        for (File dir : withoutNested(dirs)) {
+            walks.add(new Walk(dir, getHashPool(dir), getDevice(dir), sizes));
+        }
+        walkPool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(walks);
+            }
+        });
 
-        for (File file : listFiles) {
-            if (file.isDirectory()) {
-                findDuplicates(files, file);
+        final List<List<File>> result = new ArrayList<>();
+        final List<List<Candidate>> sameSize = new ArrayList<>();
+        final List<List<Candidate>> smallFiles = new ArrayList<>();
+        for (Map.Entry<Long, Queue<Candidate>> entry : sizes.entrySet()) {
+            final long size = entry.getKey();
+            final List<Candidate> files = distinct(entry.getValue());
+            if (files.size() < 2) {
+                continue;
+            }
+            if (size == 0) {
+                result.add(toFiles(files));
+            } else if (size <= 2 * SAMPLE_SIZE) {
+                //The sample of a small file is its whole content
+                smallFiles.add(files);
             } else {
-                byte[] data;
-                try (InputStream in = new FileInputStream(file)) {
-                    long length = file.length() / 10;
-                    totalLength += length;
-                    data = new byte[(int) length];
-                    in.read(data);
+                sameSize.add(files);
+            }
+        }
+        for (List<Candidate> files : groupByHash(smallFiles, true)) {
+            result.add(toFiles(files));
+        }
+        for (List<Candidate> files : groupByHash(groupByHash(sameSize, true), false)) {
+            result.add(toFiles(files));
+        }
+        return result;
+    }
+
+    /**
+     * Compares files of a group found by {@link #findDuplicates} byte by byte, so a collision of hashes never
+     * deletes a file. Another path to a file already in a group, such as a hard link, is left out of all groups.
+     *
+     * @return groups of distinct files with exactly the same content in order of the given group, at least two
+     * files each
+     */
+    public List<List<File>> confirm(List<File> group) throws IOException {
+        final List<List<File>> result = new ArrayList<>();
+        final List<File> left = new ArrayList<>(group);
+        final ByteBuffer first = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final ByteBuffer other = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        while (left.size() > 1) {
+            final File original = left.remove(0);
+            final List<File> same = new ArrayList<>();
+            same.add(original);
+            for (int i = 0; i < left.size(); ) {
+                if (Files.isSameFile(original.toPath(), left.get(i).toPath())) {
+                    //Deleting it would delete the original
+                    left.remove(i);
+                } else if (isSameContent(original, left.get(i), first, other)) {
+                    same.add(left.remove(i));
+                } else {
+                    i++;
                 }
+            }
+            if (same.size() > 1) {
+                result.add(same);
+            }
+        }
+        return result;
+    }
 
-                final String hash = new BigInteger(1, messageDigest.digest(data)).toString(HASH_SIZE);
-                final List<File> list = files.getOrDefault(hash, new LinkedList<>());
-                list.add(file);
-                files.put(hash, list);
+    public long getTotalLength() {
+        return totalLength.sum();
+    }
+
+    /**
+     * Stops threads hashing files.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService pool : hashPools.values()) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return the directories in the given order without those given before or inside another given one
+     */
+    private static List<File> withoutNested(File... dirs) throws IOException {
+        final List<Path> paths = new ArrayList<>(dirs.length);
+        for (File dir : dirs) {
+            paths.add(dir.getCanonicalFile().toPath());
+        }
+        final List<File> result = new ArrayList<>(dirs.length);
+        for (int i = 0; i < dirs.length; i++) {
+            boolean nested = false;
+            for (int j = 0; j < dirs.length && !nested; j++) {
+                final Path path = paths.get(i);
+                final Path other = paths.get(j);
+                nested = j != i && path.startsWith(other) && (j < i || !path.equals(other));
+            }
+            if (!nested) {
+                result.add(dirs[i]);
             }
         }
+        return result;
+    }
+
+    /**
+     * Drops repeated entries of a file, found by several paths when walked twice or through a hard link. A file
+     * is known by its key, or by its canonical path where the file system has no keys.
+     *
+     * @return candidates sorted by path, the first path of every file
+     */
+    private static List<Candidate> distinct(Collection<Candidate> candidates) throws IOException {
+        final List<Candidate> sorted = new ArrayList<>(candidates);
+        if (sorted.size() < 2) {
+            return sorted;
+        }
+        sorted.sort(Comparator.comparing(candidate -> candidate.file));
+        final Set<Object> keys = new HashSet<>();
+        final List<Candidate> result = new ArrayList<>(sorted.size());
+        for (Candidate candidate : sorted) {
+            final Object key = candidate.attributes.fileKey();
+            if (keys.add(key == null ? candidate.file.getCanonicalPath() : key)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return id of the device of the file or null if the file system doesn't tell it
+     */
+    private static Object getDevice(File file) {
+        try {
+            return Files.getAttribute(file.toPath(), "unix:dev", LinkOption.NOFOLLOW_LINKS);
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    private ExecutorService getHashPool(File dir) throws IOException {
+        final String device = Files.getFileStore(dir.toPath()).name();
+        return hashPools.computeIfAbsent(device,
+                name -> Executors.newFixedThreadPool(deviceParallelism.getOrDefault(name, defaultParallelism)));
     }
 
-    private static void deleteDuplicates(Map<String, List<File>> duplicates) {
-        for (Map.Entry<String, List<File>> entry : duplicates.entrySet()) {
-            final List<File> files = entry.getValue();
+    /**
+     * Hashes all files of all groups at once, every file by the pool of its device.
+     *
+     * @param sample whether to hash only the head and the tail of files or the whole content
+     * @return groups of at least two files with the same hash
+     */
+    private List<List<Candidate>> groupByHash(List<List<Candidate>> groups, boolean sample) throws IOException {
+        final List<List<Future<FileHash>>> hashes = new ArrayList<>();
+        for (List<Candidate> files : groups) {
+            final List<Future<FileHash>> groupHashes = new ArrayList<>();
+            for (Candidate candidate : files) {
+                groupHashes.add(candidate.hashPool.submit(() -> hash(candidate, sample)));
+            }
+            hashes.add(groupHashes);
+        }
+
+        final List<List<Candidate>> result = new ArrayList<>();
+        for (int i = 0; i < groups.size(); i++) {
+            final Map<FileHash, List<Candidate>> sameHash = new LinkedHashMap<>();
+            final List<Candidate> files = groups.get(i);
+            for (int j = 0; j < files.size(); j++) {
+                sameHash.computeIfAbsent(await(hashes.get(i).get(j)), key -> new ArrayList<>()).add(files.get(j));
+            }
+            addGroups(result, sameHash.values());
+        }
+        return result;
+    }
+
+    private static void addGroups(List<List<Candidate>> result, Collection<List<Candidate>> groups) {
+        for (List<Candidate> group : groups) {
+            if (group.size() > 1) {
+                result.add(group);
+            }
+        }
+    }
+
+    private static FileHash await(Future<FileHash> hash) throws IOException {
+        try {
+            return hash.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Hashing was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static List<File> toFiles(List<Candidate> candidates) {
+        final List<File> result = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            result.add(candidate.file);
+        }
+        //Directories are walked in parallel, the order keeps the same file in a group whatever it was found first
+        result.sort(Comparator.naturalOrder());
+        return result;
+    }
+
+    /**
+     * @return hash from the index if the file didn't change, otherwise the file is hashed and the index updated
+     */
+    private FileHash hash(Candidate candidate, boolean sample) throws IOException {
+        FileHash result = index == null ? null : index.get(candidate.file, candidate.attributes, sample);
+        if (result == null) {
+            result = sample ? hashSample(candidate.file) : hash(candidate.file);
+            if (index != null) {
+                index.put(candidate.file, candidate.attributes, sample, result);
+            }
+        }
+        return result;
+    }
+
+    private FileHash hashSample(File file) throws IOException {
+        final StreamingHash hash = hashes.get();
+        hash.reset();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long length = channel.size();
+            if (length <= 2 * SAMPLE_SIZE) {
+                update(channel, 0, length);
+            } else {
+                update(channel, 0, SAMPLE_SIZE);
+                update(channel, length - SAMPLE_SIZE, SAMPLE_SIZE);
+            }
+        }
+        return hash.finish();
+    }
+
+    private FileHash hash(File file) throws IOException {
+        final StreamingHash hash = hashes.get();
+        hash.reset();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long length = channel.size();
+            if (length < MAPPING_THRESHOLD) {
+                update(channel, 0, length);
+            } else {
+                updateMapped(channel, length);
+            }
+        }
+        return hash.finish();
+    }
+
+    /**
+     * Feeds the hash of the thread with bytes of the channel read into the buffer of the thread.
+     */
+    private void update(FileChannel channel, long position, long length) throws IOException {
+        final StreamingHash hash = hashes.get();
+        final ByteBuffer buffer = buffers.get();
+        long done = 0;
+        while (done < length) {
+            read(channel, position + done, buffer, (int) Math.min(buffer.capacity(), length - done));
+            hash.update(buffer);
+            done += buffer.limit();
+        }
+        totalLength.add(length);
+    }
+
+    /**
+     * Feeds the hash of the thread with the whole channel mapped into memory window by window.
+     */
+    private void updateMapped(FileChannel channel, long length) throws IOException {
+        final StreamingHash hash = hashes.get();
+        for (long position = 0; position < length; position += WINDOW_SIZE) {
+            final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(WINDOW_SIZE, length - position));
+            hash.update(window);
+        }
+        totalLength.add(length);
+    }
+
+    private boolean isSameContent(File file, File other, ByteBuffer buffer, ByteBuffer otherBuffer)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             FileChannel otherChannel = FileChannel.open(other.toPath(), StandardOpenOption.READ)) {
+            final long length = channel.size();
+            if (otherChannel.size() != length) {
+                return false;
+            }
+            for (long position = 0; position < length; position += buffer.limit()) {
+                final int size = (int) Math.min(buffer.capacity(), length - position);
+                read(channel, position, buffer, size);
+                read(otherChannel, position, otherBuffer, size);
+                totalLength.add(2L * size);
+                if (!buffer.equals(otherBuffer)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the amount of bytes at the position into the buffer, ready to be read from the start.
+     */
+    private static void read(FileChannel channel, long position, ByteBuffer buffer, int amount) throws IOException {
+        buffer.clear();
+        buffer.limit(amount);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException(String.format("File ended at %d before %d bytes were read",
+                        position + buffer.position(), amount));
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * @param index forgets deleted files, null if there is no index
+     */
+    private static void deleteDuplicates(List<List<File>> duplicates, HashIndex index) {
+        for (List<File> files : duplicates) {
             for (int i = 1; i < files.size(); i++) {
                 final File file = files.get(i);
                 final boolean deleted = file.delete();
 
                 if (deleted) {
-                System.out.println("Deleted: " + file);
+                    System.out.println("Deleted: " + file);
+                    if (index != null) {
+                        index.remove(file);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * File of a size group, its attributes read by the walk and the pool hashing files of its device.
+     */
+    private static final class Candidate {
+
+        private final File file;
+        private final BasicFileAttributes attributes;
+        private final ExecutorService hashPool;
+
+        private Candidate(File file, BasicFileAttributes attributes, ExecutorService hashPool) {
+            this.file = file;
+            this.attributes = attributes;
+            this.hashPool = hashPool;
+        }
+    }
+
+    /**
+     * Hash of the tier fed with buffers, one per thread and reused from one file to another.
+     */
+    private static final class StreamingHash {
+
+        private static final int SHA_512_SIZE = 64;
+        private static final HashFunction MURMUR3 = Hashing.murmur3_128();
+
+        //Null for the fast tier
+        private final MessageDigest messageDigest;
+        private Hasher hasher;
+        //Guava hashers only take arrays, bytes of direct and mapped buffers are copied through it
+        private final byte[] chunk = new byte[BUFFER_SIZE];
+        private final ByteBuffer result = ByteBuffer.allocate(SHA_512_SIZE);
+
+        private StreamingHash(HashTier tier) {
+            try {
+                messageDigest = tier == HashTier.STRONG ? MessageDigest.getInstance("SHA-512") : null;
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e.getMessage());
+            }
+        }
+
+        private void reset() {
+            if (messageDigest == null) {
+                hasher = MURMUR3.newHasher();
+            } else {
+                messageDigest.reset();
+            }
+        }
+
+        private void update(ByteBuffer bytes) {
+            if (messageDigest != null) {
+                messageDigest.update(bytes);
+                return;
+            }
+            while (bytes.hasRemaining()) {
+                final int size = Math.min(chunk.length, bytes.remaining());
+                bytes.get(chunk, 0, size);
+                hasher.putBytes(chunk, 0, size);
+            }
+        }
+
+        private FileHash finish() {
+            final byte[] bytes = result.array();
+            if (messageDigest == null) {
+                hasher.hash().writeBytesTo(bytes, 0, bytes.length);
+            } else {
+                try {
+                    messageDigest.digest(bytes, 0, bytes.length);
+                } catch (DigestException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
                 }
             }
+            return new FileHash(result.getLong(0), result.getLong(Long.BYTES));
+        }
+    }
+
+    /**
+     * Lists a directory, forks a task for every subdirectory and adds files to their size groups. Symbolic links
+     * are not followed.
+     */
+    private final class Walk extends RecursiveAction {
+
+        private final File dir;
+        private final ExecutorService hashPool;
+        //Null if the file system doesn't tell devices apart
+        private final Object device;
+        private final Map<Long, Queue<Candidate>> sizes;
+
+        private Walk(File dir, ExecutorService hashPool, Object device, Map<Long, Queue<Candidate>> sizes) {
+            this.dir = dir;
+            this.hashPool = hashPool;
+            this.device = device;
+            this.sizes = sizes;
+        }
+
+        @Override
+        protected void compute() {
+            final File[] listFiles = Optional.ofNullable(dir.listFiles()).orElse(new File[0]);
+
+            final List<Walk> subdirs = new ArrayList<>();
+            for (File file : listFiles) {
+                final BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    //Removed since the directory was listed
+                    continue;
+                }
+                if (attributes.isSymbolicLink()) {
+                    //Deleting a link frees nothing, and a group of a link and its target would lose the content
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    subdirs.add(walkInto(file));
+                } else if (attributes.isRegularFile()) {
+                    sizes.computeIfAbsent(attributes.size(), size -> new ConcurrentLinkedQueue<>())
+                            .add(new Candidate(file, attributes, hashPool));
+                }
+            }
+            invokeAll(subdirs);
+        }
+
+        /**
+         * @return walk of the subdirectory with the pool of its device, another one if a device is mounted there
+         */
+        private Walk walkInto(File subdir) {
+            final Object subdirDevice = getDevice(subdir);
+            if (subdirDevice == null || subdirDevice.equals(device)) {
+                return new Walk(subdir, hashPool, device, sizes);
+            }
+            try {
+                return new Walk(subdir, getHashPool(subdir), subdirDevice, sizes);
+            } catch (IOException e) {
+                //The file store can't be read, files are hashed by the pool of the parent
+                return new Walk(subdir, hashPool, subdirDevice, sizes);
+            }
         }
     }
 }
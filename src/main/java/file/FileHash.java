@@ -0,0 +1,13 @@
+package file;
+
+import lombok.Data;
+
+/**
+ * 128 bit hash of a file or of its sample as two longs.
+ */
+@Data
+public class FileHash {
+
+    private final long high;
+    private final long low;
+}
@@ -0,0 +1,215 @@
+package file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes of files from earlier runs of {@link DuplicateDetector}, so a run hashes only new and changed files.
+ * A hash is valid while the size, the modification time and the file key (device and inode where available) of
+ * the file stay the same. Files are known by their canonical path, so a file found through another spelling of
+ * its directory has the same hashes. The index is a file of records which new hashes are appended to, a later
+ * record of a file wins. It is compacted when closed: only the last hashes of files which still exist are written.
+ */
+public class HashIndex implements Closeable {
+
+    private static final int MAGIC = 0x48494458;
+    //Version 1 kept files by the path they were found by
+    private static final byte VERSION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final HashTier tier;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final DataOutputStream out;
+
+    /**
+     * Loads the index or creates it if the file doesn't exist. An index of another tier or with a broken last
+     * record, which a crash leaves, is rewritten before new hashes are appended.
+     */
+    public HashIndex(Path path, HashTier tier) throws IOException {
+        this.path = path;
+        this.tier = tier;
+        if (!Files.exists(path) || !load()) {
+            write();
+        }
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.APPEND),
+                BUFFER_SIZE));
+    }
+
+    public HashTier getTier() {
+        return tier;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param sample whether it is a hash of the head and the tail of the file or of the whole content
+     * @return hash from an earlier run or null if the file is new or changed since then
+     */
+    FileHash get(File file, BasicFileAttributes attributes, boolean sample) {
+        final Entry entry = entries.get(getKey(file));
+        if (entry == null || !entry.isSameFile(attributes)) {
+            return null;
+        }
+        entry.seen = true;
+        return sample ? entry.sample : entry.full;
+    }
+
+    void put(File file, BasicFileAttributes attributes, boolean sample, FileHash hash) throws IOException {
+        final String filePath = getKey(file);
+        final Entry entry = entries.compute(filePath, (key, old) -> old != null && old.isSameFile(attributes)
+                ? old : new Entry(attributes.size(), getModified(attributes), getFileKey(attributes)));
+        entry.seen = true;
+        if (sample) {
+            entry.sample = hash;
+        } else {
+            entry.full = hash;
+        }
+        synchronized (this) {
+            writeRecord(out, filePath, entry, sample, hash);
+        }
+    }
+
+    /**
+     * Forgets hashes of a deleted file, so they are not written when the index is compacted.
+     */
+    public void remove(File file) {
+        entries.remove(getKey(file));
+    }
+
+    /**
+     * Compacts the index: rewrites it with the last hashes of files which were seen by this run or still exist.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+        entries.entrySet().removeIf(entry -> !entry.getValue().seen && !Files.exists(Paths.get(entry.getKey())));
+        write();
+    }
+
+    /**
+     * @return false if the index should be rewritten
+     */
+    private boolean load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path),
+                BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION || in.readByte() != tier.ordinal()) {
+                return false;
+            }
+            while (true) {
+                final String filePath;
+                try {
+                    filePath = in.readUTF();
+                } catch (EOFException e) {
+                    return true;
+                }
+                final Entry record = new Entry(in.readLong(), in.readLong(), in.readUTF());
+                final boolean sample = in.readBoolean();
+                final FileHash hash = new FileHash(in.readLong(), in.readLong());
+                final Entry entry = entries.merge(filePath, record,
+                        (old, added) -> old.isSameFile(added) ? old : added);
+                if (sample) {
+                    entry.sample = hash;
+                } else {
+                    entry.full = hash;
+                }
+            }
+        } catch (EOFException e) {
+            //Records before the broken one are kept
+            return false;
+        }
+    }
+
+    private void write() throws IOException {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream temporaryOut = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporary), BUFFER_SIZE))) {
+            temporaryOut.writeInt(MAGIC);
+            temporaryOut.writeByte(VERSION);
+            temporaryOut.writeByte(tier.ordinal());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                final Entry value = entry.getValue();
+                if (value.sample != null) {
+                    writeRecord(temporaryOut, entry.getKey(), value, true, value.sample);
+                }
+                if (value.full != null) {
+                    writeRecord(temporaryOut, entry.getKey(), value, false, value.full);
+                }
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeRecord(DataOutputStream out, String filePath, Entry entry, boolean sample,
+                                    FileHash hash) throws IOException {
+        out.writeUTF(filePath);
+        out.writeLong(entry.size);
+        out.writeLong(entry.modified);
+        out.writeUTF(entry.fileKey);
+        out.writeBoolean(sample);
+        out.writeLong(hash.getHigh());
+        out.writeLong(hash.getLow());
+    }
+
+    private static String getKey(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    private static long getModified(BasicFileAttributes attributes) {
+        return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private static String getFileKey(BasicFileAttributes attributes) {
+        return attributes.fileKey() == null ? "" : attributes.fileKey().toString();
+    }
+
+    /**
+     * Hashes of a file while it stays the same.
+     */
+    private static final class Entry {
+
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+        private volatile FileHash sample;
+        private volatile FileHash full;
+        //Whether the file was found by this run
+        private volatile boolean seen;
+
+        private Entry(long size, long modified, String fileKey) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+        }
+
+        private boolean isSameFile(BasicFileAttributes attributes) {
+            return size == attributes.size() && modified == getModified(attributes)
+                    && fileKey.equals(getFileKey(attributes));
+        }
+
+        private boolean isSameFile(Entry other) {
+            return size == other.size && modified == other.modified && fileKey.equals(other.fileKey);
+        }
+    }
+}
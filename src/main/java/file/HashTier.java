@@ -0,0 +1,13 @@
+package file;
+
+/**
+ * Hash which groups files of the same size by {@link DuplicateDetector}. Either way groups are compared byte by
+ * byte before any file is deleted, so the hash only has to be fast and spread well.
+ */
+public enum HashTier {
+
+    //Murmur3 128 bit, many times faster than disks
+    FAST,
+    //SHA-512 cut to 128 bits, when groups are trusted without comparing them
+    STRONG
+}
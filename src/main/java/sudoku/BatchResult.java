@@ -0,0 +1,25 @@
+package sudoku;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BatchResult {
+
+    private static final double NANOS_IN_SECOND = 1_000_000_000d;
+
+    //Solved sudoku in input order, null for sudoku which can't be solved. Empty when solutions were streamed
+    private List<int[][]> solutions;
+    private int amountOfPuzzles;
+    private int amountOfFailed;
+    private long elapsedNanos;
+    //Sum of statistics of all sudoku, null when the batch solver doesn't collect them
+    private SolveStats stats;
+
+    public double getPuzzlesPerSecond() {
+        return elapsedNanos == 0 ? 0 : amountOfPuzzles * NANOS_IN_SECOND / elapsedNanos;
+    }
+}
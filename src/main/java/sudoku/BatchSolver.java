@@ -0,0 +1,300 @@
+package sudoku;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Solves many sudoku at once on all cores. Every thread solves its chunks with its own {@link Solver},
+ * because a solver keeps state of the current sudoku, and reuses it so solving doesn't allocate.
+ */
+@Log4j2
+public class BatchSolver {
+
+    //Amount of sudoku read from a file before they are solved and written
+    private static final int STREAM_BATCH_SIZE = 64 * 1024;
+    //Bytes of a packed file mapped at once, rounded down to whole records
+    private static final long PACKED_WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final String STATS_OPTION = "--stats";
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final Geometry geometry;
+    private final boolean collectingStats;
+    //Limits every sudoku, which is failed when it runs out
+    private final Budget budget;
+    private final ThreadLocal<Solver> solvers;
+
+    public static void main(String[] args) throws IOException {
+        if (args == null || args.length < 2) {
+            System.out.printf("Input and output files must be specified, %s prints statistics of methods%n",
+                    STATS_OPTION);
+            return;
+        }
+        boolean collectingStats = args.length > 2 && STATS_OPTION.equals(args[2]);
+        try (PuzzleReader reader = new PuzzleReader(Paths.get(args[0]));
+             PuzzleWriter writer = new PuzzleWriter(Paths.get(args[1]))) {
+            BatchResult result = new BatchSolver(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(),
+                    Geometry.STANDARD, collectingStats).solve(reader, writer);
+            System.out.printf("Solved %d sudoku, %d failed, %.0f puzzles/sec%n", result.getAmountOfPuzzles(),
+                    result.getAmountOfFailed(), result.getPuzzlesPerSecond());
+            if (collectingStats) {
+                System.out.println(result.getStats());
+            }
+        }
+    }
+
+    public BatchSolver() {
+        this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    public BatchSolver(ExecutorService executor, int parallelism) {
+        this(executor, parallelism, Geometry.STANDARD);
+    }
+
+    public BatchSolver(ExecutorService executor, int parallelism, Geometry geometry) {
+        this(executor, parallelism, geometry, false);
+    }
+
+    /**
+     * @param collectingStats whether {@link BatchResult#getStats} sums statistics of all solved sudoku
+     */
+    public BatchSolver(ExecutorService executor, int parallelism, Geometry geometry, boolean collectingStats) {
+        this(executor, parallelism, geometry, collectingStats, Budget.UNLIMITED);
+    }
+
+    /**
+     * @param budget limits of every sudoku, a sudoku which runs out of it is failed and the thread moves on
+     */
+    public BatchSolver(ExecutorService executor, int parallelism, Geometry geometry, boolean collectingStats,
+                       Budget budget) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be positive, but was " + parallelism);
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.geometry = geometry;
+        this.collectingStats = collectingStats;
+        this.budget = budget;
+        solvers = ThreadLocal.withInitial(() -> new Solver(geometry, collectingStats));
+    }
+
+    public BatchResult solve(Stream<int[][]> puzzles) {
+        return solve(puzzles.collect(Collectors.toList()));
+    }
+
+    /**
+     * Solves every sudoku in place.
+     */
+    public BatchResult solve(List<int[][]> puzzles) {
+        long start = System.nanoTime();
+        int[][][] solutions = puzzles.toArray(new int[puzzles.size()][][]);
+        AtomicInteger amountOfFailed = new AtomicInteger();
+        SolveStats stats = collectingStats ? new SolveStats() : null;
+
+        Chunks.run(executor, parallelism, solutions.length,
+                (fromIndex, toIndex) -> solveChunk(fromIndex, toIndex, (solver, i) -> {
+                    SolveStatus status = solver.solveInPlace(solutions[i], true, budget);
+                    if (status != SolveStatus.SOLVED) {
+                        solutions[i] = null;
+                    }
+                    return status;
+                }, amountOfFailed, stats));
+
+        BatchResult result = new BatchResult(Arrays.asList(solutions), solutions.length, amountOfFailed.get(),
+                System.nanoTime() - start, stats);
+        log.debug("Solved {} sudoku, {} failed, {} puzzles/sec", solutions.length, result.getAmountOfFailed(),
+                (long) result.getPuzzlesPerSecond());
+        return result;
+    }
+
+    /**
+     * Counts solutions of every sudoku up to the limit, see {@link Solver#countSolutions(int[][], long)}.
+     * Sudoku of a wrong size or with wrong values have 0 solutions.
+     *
+     * @return amount of solutions in input order
+     */
+    public long[] countSolutions(List<int[][]> puzzles, long limit) {
+        int[][][] sudoku = puzzles.toArray(new int[puzzles.size()][][]);
+        long[] result = new long[sudoku.length];
+        Chunks.run(executor, parallelism, sudoku.length, (fromIndex, toIndex) -> {
+            Solver solver = solvers.get();
+            for (int i = fromIndex; i < toIndex; i++) {
+                try {
+                    result[i] = solver.countSolutions(sudoku[i], limit);
+                } catch (SudokuException e) {
+                    result[i] = 0;
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Counts solutions of one sudoku exploring branches of the first guess at once. Pays off for sudoku with
+     * many solutions, a sudoku with a unique solution is usually counted faster by a single {@link Solver}.
+     *
+     * @return amount of solutions, no more than the limit
+     */
+    public long countSolutions(int[][] sudoku, long limit) {
+        Candidates root = solvers.get().prepareCounting(sudoku, limit);
+        if (root == null || !root.propagateSingles()) {
+            return 0;
+        }
+        int cell = root.getCellWithFewestCandidates();
+        if (cell < 0) {
+            return 1;
+        }
+        AtomicLong found = new AtomicLong();
+        List<Future<?>> branches = new ArrayList<>();
+        for (int mask = root.get(cell); mask != 0; mask &= mask - 1) {
+            Candidates branch = root.copy();
+            branch.place(cell, Candidates.numberOf(mask));
+            branches.add(executor.submit(() -> solvers.get().countSolutions(branch, limit, found)));
+        }
+        for (Future<?> branch : branches) {
+            Chunks.await(branch);
+        }
+        return Math.min(found.get(), limit);
+    }
+
+    /**
+     * Streams all sudoku of the reader through the solver into the writer, batch by batch, so memory use
+     * doesn't depend on the size of the file. Sudoku which can't be solved are written as an empty grid to keep
+     * lines of both files aligned.
+     */
+    public BatchResult solve(PuzzleReader reader, PuzzleWriter writer) throws IOException {
+        long start = System.nanoTime();
+        int lineSize = geometry.getLineSize();
+        int[][][] buffer = new int[STREAM_BATCH_SIZE][lineSize][lineSize];
+        int[][] emptyGrid = new int[lineSize][lineSize];
+        int amountOfPuzzles = 0;
+        int amountOfFailed = 0;
+        SolveStats stats = collectingStats ? new SolveStats() : null;
+
+        int amountRead;
+        do {
+            amountRead = 0;
+            while (amountRead < buffer.length && reader.read(buffer[amountRead])) {
+                amountRead++;
+            }
+            BatchResult result = solve(Arrays.asList(buffer).subList(0, amountRead));
+            for (int[][] solution : result.getSolutions()) {
+                writer.write(solution == null ? emptyGrid : solution);
+            }
+            amountOfPuzzles += amountRead;
+            amountOfFailed += result.getAmountOfFailed();
+            if (stats != null) {
+                stats.add(result.getStats());
+            }
+        } while (amountRead == buffer.length);
+
+        return new BatchResult(Collections.emptyList(), amountOfPuzzles, amountOfFailed, System.nanoTime() - start,
+                stats);
+    }
+
+    /**
+     * Solves every record of the {@link PackedFormat} between the position and the limit of the buffer in place.
+     * The buffer may be direct or mapped from a file, sudoku are read from it and written back without objects
+     * per sudoku. Sudoku which can't be solved are replaced by an empty grid, the position is not changed.
+     */
+    public BatchResult solve(ByteBuffer puzzles) {
+        long start = System.nanoTime();
+        PackedFormat format = new PackedFormat(geometry);
+        int amountOfPuzzles = format.getAmountOfRecords(puzzles);
+        int firstOffset = puzzles.position();
+        int recordSize = format.getRecordSize();
+        AtomicInteger amountOfFailed = new AtomicInteger();
+        SolveStats stats = collectingStats ? new SolveStats() : null;
+
+        Chunks.run(executor, parallelism, amountOfPuzzles,
+                (fromIndex, toIndex) -> solveChunk(fromIndex, toIndex, (solver, i) -> {
+                    int offset = firstOffset + i * recordSize;
+                    SolveStatus status = solver.solveInPlace(puzzles, offset, true, budget);
+                    if (status != SolveStatus.SOLVED) {
+                        format.clear(puzzles, offset);
+                    }
+                    return status;
+                }, amountOfFailed, stats));
+
+        return new BatchResult(Collections.emptyList(), amountOfPuzzles, amountOfFailed.get(),
+                System.nanoTime() - start, stats);
+    }
+
+    /**
+     * Solves a file of records of the {@link PackedFormat} in place. The file is mapped into memory window by
+     * window, so it can be bigger than the heap.
+     */
+    public BatchResult solve(Path packedFile) throws IOException {
+        long start = System.nanoTime();
+        int recordSize = new PackedFormat(geometry).getRecordSize();
+        long windowSize = PACKED_WINDOW_SIZE / recordSize * recordSize;
+        int amountOfPuzzles = 0;
+        int amountOfFailed = 0;
+        SolveStats stats = collectingStats ? new SolveStats() : null;
+
+        try (FileChannel channel = FileChannel.open(packedFile, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += windowSize) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_WRITE, position,
+                        Math.min(windowSize, size - position));
+                BatchResult result = solve(window);
+                window.force();
+                amountOfPuzzles += result.getAmountOfPuzzles();
+                amountOfFailed += result.getAmountOfFailed();
+                if (stats != null) {
+                    stats.add(result.getStats());
+                }
+            }
+        }
+        return new BatchResult(Collections.emptyList(), amountOfPuzzles, amountOfFailed, System.nanoTime() - start,
+                stats);
+    }
+
+    private void solveChunk(int fromIndex, int toIndex, Puzzles puzzles, AtomicInteger amountOfFailed,
+                            SolveStats stats) {
+        Solver solver = solvers.get();
+        SolveStats chunkStats = stats == null ? null : new SolveStats();
+        for (int i = fromIndex; i < toIndex; i++) {
+            SolveStatus status = puzzles.solve(solver, i);
+            if (status != SolveStatus.SOLVED) {
+                amountOfFailed.incrementAndGet();
+            }
+            //Invalid sudoku are rejected before solving, statistics are left from the previous one
+            if (chunkStats != null && status != SolveStatus.INVALID) {
+                chunkStats.add(solver.getLastStats());
+            }
+        }
+        if (stats != null) {
+            synchronized (stats) {
+                stats.add(chunkStats);
+            }
+        }
+    }
+
+    /**
+     * Sudoku of a batch by index, solved in place by the given solver.
+     */
+    private interface Puzzles {
+
+        SolveStatus solve(Solver solver, int index);
+    }
+}
@@ -0,0 +1,136 @@
+package sudoku;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Numbers of a sudoku in one flat array, row by row, a byte per cell and 0 for an empty cell. Rows, columns and
+ * squares are reached through the index tables of the {@link Geometry}, so the solver never walks a two
+ * dimensional array. Two dimensional arrays are only read and written at the boundary.
+ */
+class Board {
+
+    private final Geometry geometry;
+    private final int lineSize;
+    private final byte[] cells;
+
+    Board(Geometry geometry) {
+        this.geometry = geometry;
+        lineSize = geometry.getLineSize();
+        cells = new byte[geometry.getAmountOfCells()];
+    }
+
+    /**
+     * Takes numbers of the sudoku, which must have the size of the geometry and numbers in range.
+     */
+    void load(int[][] sudoku) {
+        for (int i = 0; i < lineSize; i++) {
+            int[] line = sudoku[i];
+            int shift = i * lineSize;
+            for (int j = 0; j < lineSize; j++) {
+                cells[shift + j] = (byte) line[j];
+            }
+        }
+    }
+
+    void store(int[][] sudoku) {
+        for (int i = 0; i < lineSize; i++) {
+            int[] line = sudoku[i];
+            int shift = i * lineSize;
+            for (int j = 0; j < lineSize; j++) {
+                line[j] = cells[shift + j];
+            }
+        }
+    }
+
+    /**
+     * Takes numbers from a record of the {@link PackedFormat} at the offset of the buffer.
+     *
+     * @return false if some number is out of range
+     */
+    boolean load(ByteBuffer buffer, int offset) {
+        for (int cell = 0; cell < cells.length; cell++) {
+            int number = PackedFormat.get(buffer, offset, cell);
+            if (number > lineSize) {
+                return false;
+            }
+            cells[cell] = (byte) number;
+        }
+        return true;
+    }
+
+    /**
+     * Writes numbers as a record of the {@link PackedFormat} at the offset of the buffer.
+     */
+    void store(ByteBuffer buffer, int offset) {
+        for (int cell = 0; cell < cells.length; cell += 2) {
+            int low = cell + 1 < cells.length ? cells[cell + 1] : 0;
+            buffer.put(offset + cell / 2, (byte) (cells[cell] << 4 | low));
+        }
+    }
+
+    Geometry getGeometry() {
+        return geometry;
+    }
+
+    int get(int cell) {
+        return cells[cell];
+    }
+
+    void set(int cell, int number) {
+        cells[cell] = (byte) number;
+    }
+
+    /**
+     * @return mask of numbers present in the unit
+     */
+    int getUnitNumbers(int unit) {
+        int result = 0;
+        for (int cell : geometry.getUnitCells(unit)) {
+            int number = cells[cell];
+            if (number != 0) {
+                result |= Candidates.mask(number);
+            }
+        }
+        return result;
+    }
+
+    int getAmountOfEmptyCells(int unit) {
+        int result = 0;
+        for (int cell : geometry.getUnitCells(unit)) {
+            if (cells[cell] == 0) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    boolean contains(int unit, int number) {
+        for (int cell : geometry.getUnitCells(unit)) {
+            if (cells[cell] == number) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether some number appears twice in a row, a column or a square
+     */
+    boolean hasRepeatedNumbers() {
+        for (int unit = 0; unit < geometry.getAmountOfUnits(); unit++) {
+            int present = 0;
+            for (int cell : geometry.getUnitCells(unit)) {
+                int number = cells[cell];
+                if (number == 0) {
+                    continue;
+                }
+                int bit = Candidates.mask(number);
+                if ((present & bit) != 0) {
+                    return true;
+                }
+                present |= bit;
+            }
+        }
+        return false;
+    }
+}
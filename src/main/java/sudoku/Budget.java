@@ -0,0 +1,50 @@
+package sudoku;
+
+import lombok.Getter;
+
+/**
+ * Limits of solving a single sudoku: time, steps of logical methods and nodes of search. When any of them runs
+ * out the solver stops with {@link SolveStatus#TIMEOUT} and keeps the numbers found so far, so one adversarial
+ * sudoku can't hold a thread. {@link Long#MAX_VALUE} means no limit.
+ */
+@Getter
+public final class Budget {
+
+    public static final Budget UNLIMITED = new Budget(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+    //Deadline which never comes
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+    //Time is read once per this amount of steps or nodes, reading the clock costs more than a step
+    static final int CLOCK_INTERVAL_MASK = 0x3F;
+
+    //Time from the start of solving
+    private final long nanos;
+    //Units looked at by logical methods
+    private final long steps;
+    //Nodes visited by search
+    private final long nodes;
+
+    public Budget(long nanos, long steps, long nodes) {
+        if (nanos < 1 || steps < 1 || nodes < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Budget should be positive, but was %d nanos, %d steps, %d nodes", nanos, steps, nodes));
+        }
+        this.nanos = nanos;
+        this.steps = steps;
+        this.nodes = nodes;
+    }
+
+    public static Budget ofNanos(long nanos) {
+        return new Budget(nanos, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return deadline of {@link System#nanoTime} for solving started at the moment
+     */
+    long getDeadline(long start) {
+        return nanos == Long.MAX_VALUE ? NO_DEADLINE : start + nanos;
+    }
+
+    static boolean isPast(long deadline) {
+        return deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0;
+    }
+}
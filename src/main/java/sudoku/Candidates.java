@@ -0,0 +1,403 @@
+package sudoku;
+
+import java.util.Arrays;
+
+/**
+ * Candidate numbers of every cell kept as bitmasks. Bit {@code number - 1} of a mask stands for the number,
+ * so a whole row, column, square or cell is described by a single int.
+ */
+class Candidates {
+
+    private final Geometry geometry;
+    private final int lineSize;
+    private final int amountOfCells;
+    private final int allNumbers;
+
+    private final int[] rowNumbers;
+    private final int[] columnNumbers;
+    private final int[] squareNumbers;
+
+    //Candidates of every cell, row by row. Filled cells have no candidates
+    private final int[] cells;
+    private final byte[] numbers;
+    private int amountOfEmptyCells;
+    //Candidates removed by eliminate since the instance was created, for statistics
+    private long amountOfEliminated;
+    //Units which have a cell with changed candidates
+    private final Worklist changedUnits;
+    //Old values of words changed by place and eliminate, a location and a value per change, see restore.
+    //Null unless the trail is enabled
+    private int[] trail;
+    private int trailSize;
+
+    Candidates(Geometry geometry) {
+        this.geometry = geometry;
+        lineSize = geometry.getLineSize();
+        amountOfCells = geometry.getAmountOfCells();
+        allNumbers = geometry.getAllNumbers();
+        rowNumbers = new int[lineSize];
+        columnNumbers = new int[lineSize];
+        squareNumbers = new int[lineSize];
+        cells = new int[geometry.getAmountOfCells()];
+        numbers = new byte[geometry.getAmountOfCells()];
+        changedUnits = new Worklist(geometry.getAmountOfUnits());
+    }
+
+    /**
+     * Forgets the previous sudoku and takes candidates of the given one, so one instance serves many sudoku.
+     */
+    void load(Board board) {
+        Arrays.fill(rowNumbers, 0);
+        Arrays.fill(columnNumbers, 0);
+        Arrays.fill(squareNumbers, 0);
+        Arrays.fill(cells, 0);
+        amountOfEmptyCells = 0;
+        trailSize = 0;
+        while (changedUnits.poll() >= 0) {
+            //Changes of the previous sudoku don't matter
+        }
+        for (int cell = 0; cell < cells.length; cell++) {
+            int number = board.get(cell);
+            numbers[cell] = (byte) number;
+            if (number == 0) {
+                amountOfEmptyCells++;
+            } else {
+                int bit = mask(number);
+                rowNumbers[geometry.getRowIndex(cell)] |= bit;
+                columnNumbers[geometry.getColumnIndex(cell)] |= bit;
+                squareNumbers[geometry.getSquareIndex(cell)] |= bit;
+            }
+        }
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (numbers[cell] == 0) {
+                cells[cell] = allNumbers & ~(rowNumbers[geometry.getRowIndex(cell)]
+                        | columnNumbers[geometry.getColumnIndex(cell)] | squareNumbers[geometry.getSquareIndex(cell)]);
+            }
+        }
+    }
+
+    Candidates copy() {
+        Candidates copy = new Candidates(geometry);
+        copyTo(copy);
+        return copy;
+    }
+
+    /**
+     * Overwrites the target, which must have the same geometry, with these candidates.
+     */
+    void copyTo(Candidates target) {
+        System.arraycopy(rowNumbers, 0, target.rowNumbers, 0, lineSize);
+        System.arraycopy(columnNumbers, 0, target.columnNumbers, 0, lineSize);
+        System.arraycopy(squareNumbers, 0, target.squareNumbers, 0, lineSize);
+        System.arraycopy(cells, 0, target.cells, 0, cells.length);
+        System.arraycopy(numbers, 0, target.numbers, 0, numbers.length);
+        target.amountOfEmptyCells = amountOfEmptyCells;
+        target.trailSize = 0;
+    }
+
+    /**
+     * Makes place and eliminate remember what they change, so the changes can be rolled back. Undoing a branch
+     * of a search costs as much as the branch changed, not a copy of all candidates.
+     */
+    void enableTrail() {
+        if (trail == null) {
+            trail = new int[2 * 8 * amountOfCells];
+        }
+    }
+
+    /**
+     * @return checkpoint to roll back to, changes before it stay
+     */
+    int checkpoint() {
+        return trailSize;
+    }
+
+    void rollback(int checkpoint) {
+        while (trailSize > checkpoint) {
+            trailSize -= 2;
+            restore(trail[trailSize], trail[trailSize + 1]);
+        }
+    }
+
+    /**
+     * Words are located one after another: candidates of cells, numbers of cells, numbers of rows, of columns,
+     * of squares, then the amount of empty cells.
+     */
+    private void record(int location, int value) {
+        if (trail == null) {
+            return;
+        }
+        if (trailSize == trail.length) {
+            trail = Arrays.copyOf(trail, 2 * trail.length);
+        }
+        trail[trailSize] = location;
+        trail[trailSize + 1] = value;
+        trailSize += 2;
+    }
+
+    private void restore(int location, int value) {
+        int index = location;
+        if (index < amountOfCells) {
+            cells[index] = value;
+            return;
+        }
+        index -= amountOfCells;
+        if (index < amountOfCells) {
+            numbers[index] = (byte) value;
+            return;
+        }
+        index -= amountOfCells;
+        if (index < lineSize) {
+            rowNumbers[index] = value;
+        } else if (index < 2 * lineSize) {
+            columnNumbers[index - lineSize] = value;
+        } else if (index < 3 * lineSize) {
+            squareNumbers[index - 2 * lineSize] = value;
+        } else {
+            amountOfEmptyCells = value;
+        }
+    }
+
+    /**
+     * Registers number in the cell and removes it from candidates of all cells which share a row, a column
+     * or a square with it.
+     */
+    void place(int cell, int number) {
+        int bit = mask(number);
+        int indexRow = geometry.getRowIndex(cell);
+        int indexColumn = geometry.getColumnIndex(cell);
+        int squareIndex = geometry.getSquareIndex(cell);
+        if (trail != null) {
+            int lines = 2 * amountOfCells;
+            record(cell, cells[cell]);
+            record(amountOfCells + cell, numbers[cell]);
+            record(lines + indexRow, rowNumbers[indexRow]);
+            record(lines + lineSize + indexColumn, columnNumbers[indexColumn]);
+            record(lines + 2 * lineSize + squareIndex, squareNumbers[squareIndex]);
+            record(lines + 3 * lineSize, amountOfEmptyCells);
+        }
+        rowNumbers[indexRow] |= bit;
+        columnNumbers[indexColumn] |= bit;
+        squareNumbers[squareIndex] |= bit;
+        cells[cell] = 0;
+        if (numbers[cell] == 0) {
+            amountOfEmptyCells--;
+        }
+        numbers[cell] = (byte) number;
+        markChanged(cell);
+
+        for (int peer : geometry.getPeers(cell)) {
+            if ((cells[peer] & bit) != 0) {
+                record(peer, cells[peer]);
+                cells[peer] &= ~bit;
+                markChanged(peer);
+            }
+        }
+    }
+
+    /**
+     * Removes numbers of the mask from candidates of the cell.
+     */
+    void eliminate(int cell, int mask) {
+        int removed = cells[cell] & mask;
+        if (removed == 0) {
+            return;
+        }
+        record(cell, cells[cell]);
+        cells[cell] &= ~removed;
+        amountOfEliminated += Integer.bitCount(removed);
+        markChanged(cell);
+    }
+
+    private void markChanged(int cell) {
+        changedUnits.add(geometry.getRowIndex(cell));
+        changedUnits.add(geometry.getColumnUnit(geometry.getColumnIndex(cell)));
+        changedUnits.add(geometry.getSquareUnit(geometry.getSquareIndex(cell)));
+    }
+
+    /**
+     * @return unit which has a cell with candidates changed since it was returned last time, or -1
+     */
+    int pollChangedUnit() {
+        return changedUnits.poll();
+    }
+
+    Geometry getGeometry() {
+        return geometry;
+    }
+
+    int get(int indexRow, int indexColumn) {
+        return cells[indexRow * lineSize + indexColumn];
+    }
+
+    int get(int cell) {
+        return cells[cell];
+    }
+
+    int getNumber(int cell) {
+        return numbers[cell];
+    }
+
+    long getAmountOfEliminated() {
+        return amountOfEliminated;
+    }
+
+    /**
+     * @return candidates of all cells of the unit together
+     */
+    int getUnitCandidates(int unit) {
+        int result = 0;
+        for (int cell : geometry.getUnitCells(unit)) {
+            result |= cells[cell];
+        }
+        return result;
+    }
+
+    /**
+     * @return positions inside the unit where some number of the mask is a candidate, bit {@code i} for the cell
+     * {@code i} of the unit
+     */
+    int getPositions(int unit, int mask) {
+        int[] unitCells = geometry.getUnitCells(unit);
+        int result = 0;
+        for (int i = 0; i < unitCells.length; i++) {
+            if ((cells[unitCells[i]] & mask) != 0) {
+                result |= 1 << i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return numbers which are candidates of exactly one cell of the unit
+     */
+    int getHiddenSingles(int unit) {
+        int once = 0;
+        int more = 0;
+        for (int cell : geometry.getUnitCells(unit)) {
+            more |= once & cells[cell];
+            once |= cells[cell];
+        }
+        return once & ~more;
+    }
+
+    int getAmountOfEmptyCells() {
+        return amountOfEmptyCells;
+    }
+
+    int getRowNumbers(int indexRow) {
+        return rowNumbers[indexRow];
+    }
+
+    int getColumnNumbers(int indexColumn) {
+        return columnNumbers[indexColumn];
+    }
+
+    int getSquareNumbers(int squareIndex) {
+        return squareNumbers[squareIndex];
+    }
+
+    /**
+     * Places every number which has only one possible cell: a cell with a single candidate, or a number which
+     * fits into a single cell of a row, a column or a square. Repeats until nothing changes.
+     *
+     * @return false if some cell or some number has no place left
+     */
+    boolean propagateSingles() {
+        boolean changed = true;
+        while (changed && amountOfEmptyCells > 0) {
+            changed = false;
+            for (int cell = 0; cell < cells.length; cell++) {
+                if (numbers[cell] != 0) {
+                    continue;
+                }
+                int mask = cells[cell];
+                if (mask == 0) {
+                    return false;
+                }
+                if (Integer.bitCount(mask) == 1) {
+                    place(cell, numberOf(mask));
+                    changed = true;
+                }
+            }
+            for (int unit = 0; unit < geometry.getAmountOfUnits(); unit++) {
+                int result = placeHiddenSingles(unit);
+                if (result < 0) {
+                    return false;
+                }
+                changed = changed || result > 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 1 when a number was placed, 0 when nothing changed, -1 when some number has no place in the unit
+     */
+    private int placeHiddenSingles(int unit) {
+        int[] unitCells = geometry.getUnitCells(unit);
+        int once = 0;
+        int more = 0;
+        for (int cell : unitCells) {
+            more |= once & cells[cell];
+            once |= cells[cell];
+        }
+        if ((once | getUnitNumbers(unit)) != allNumbers) {
+            return -1;
+        }
+        once &= ~more;
+        if (once == 0) {
+            return 0;
+        }
+        for (int cell : unitCells) {
+            int single = cells[cell] & once;
+            if (single != 0) {
+                if (Integer.bitCount(single) > 1) {
+                    return -1;
+                }
+                place(cell, numberOf(single));
+            }
+        }
+        return 1;
+    }
+
+    private int getUnitNumbers(int unit) {
+        if (unit < lineSize) {
+            return rowNumbers[unit];
+        }
+        return unit < 2 * lineSize ? columnNumbers[unit - lineSize] : squareNumbers[unit - 2 * lineSize];
+    }
+
+    /**
+     * @return index of an empty cell with the fewest candidates, or -1 if there are no empty cells
+     */
+    int getCellWithFewestCandidates() {
+        int result = -1;
+        int fewest = Integer.MAX_VALUE;
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (numbers[cell] != 0) {
+                continue;
+            }
+            int amount = Integer.bitCount(cells[cell]);
+            if (amount < fewest) {
+                fewest = amount;
+                result = cell;
+                if (amount <= 1) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    static int mask(int number) {
+        return 1 << (number - 1);
+    }
+
+    /**
+     * @return the lowest number of the mask
+     */
+    static int numberOf(int mask) {
+        return Integer.numberOfTrailingZeros(mask) + 1;
+    }
+}
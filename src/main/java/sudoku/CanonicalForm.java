@@ -0,0 +1,60 @@
+package sudoku;
+
+import lombok.Getter;
+
+/**
+ * Canonical form of a sudoku with the transformation which gives it, see {@link Canonicalizer}.
+ */
+class CanonicalForm {
+
+    @Getter
+    private final String key;
+    private final boolean transposed;
+    //Canonical row i is row rows[i] of the sudoku, transposed if needed, the same for columns
+    private final int[] rows;
+    private final int[] columns;
+    //Canonical label of every number, index 0 is not used
+    private final int[] labels;
+
+    CanonicalForm(String key, boolean transposed, int[] rows, int[] columns, int[] labels) {
+        this.key = key;
+        this.transposed = transposed;
+        this.rows = rows;
+        this.columns = columns;
+        this.labels = labels;
+    }
+
+    /**
+     * @return grid transformed the same way as the sudoku to its canonical form
+     */
+    int[][] toCanonical(int[][] grid) {
+        int[][] result = new int[rows.length][columns.length];
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < columns.length; j++) {
+                int number = transposed ? grid[columns[j]][rows[i]] : grid[rows[i]][columns[j]];
+                result[i][j] = number == 0 ? 0 : labels[number];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the canonical grid into the target transformed back to the sudoku.
+     */
+    void fromCanonical(int[][] canonical, int[][] target) {
+        int[] numbers = new int[labels.length];
+        for (int number = 1; number < labels.length; number++) {
+            numbers[labels[number]] = number;
+        }
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < columns.length; j++) {
+                int number = numbers[canonical[i][j]];
+                if (transposed) {
+                    target[columns[j]][rows[i]] = number;
+                } else {
+                    target[rows[i]][columns[j]] = number;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the canonical form of a sudoku: the smallest grid, compared row by row, among grids made from it by
+ * relabeling numbers, transposing, swapping bands and stacks, and swapping rows inside a band and columns inside
+ * a stack. Equivalent sudoku have the same canonical form. Only grids with the biggest sequences of amounts of
+ * clues in rows and in columns take part, which doesn't depend on the order of the sudoku and leaves few
+ * arrangements to search. Numbers are relabeled in order of appearance, so only arrangements of rows and columns
+ * are searched: rows are chosen one by one and only arrangements which give the smallest rows so far are kept.
+ */
+class Canonicalizer {
+
+    //Arrangements of columns are listed in advance, there are 6! * 6^3 = 1296 for 9x9 sudoku
+    private static final int MAX_COLUMN_ARRANGEMENTS = 10_000;
+    //Sparse and symmetric sudoku keep more arrangements with the smallest rows, their search is given up
+    private static final int MAX_TIED_ARRANGEMENTS = 50_000;
+
+    private final Geometry geometry;
+    private final int lineSize;
+    private final int heightSquare;
+    //Every arrangement lists columns of the sudoku in canonical order
+    private final int[][] columnArrangements;
+
+    Canonicalizer(Geometry geometry) {
+        this.geometry = geometry;
+        lineSize = geometry.getLineSize();
+        heightSquare = geometry.getHeightSquare();
+        List<int[]> arrangements = new ArrayList<>();
+        arrangeStacks(new int[lineSize], 0, 0, arrangements);
+        columnArrangements = arrangements.toArray(new int[arrangements.size()][]);
+    }
+
+    static boolean isSupported(Geometry geometry) {
+        long amount = factorial(geometry.getAmountOfHorizontalSquares());
+        for (int i = 0; i < geometry.getAmountOfHorizontalSquares(); i++) {
+            amount *= factorial(geometry.getWidthSquare());
+        }
+        return amount <= MAX_COLUMN_ARRANGEMENTS;
+    }
+
+    private static long factorial(int n) {
+        return n <= 1 ? 1 : n * factorial(n - 1);
+    }
+
+    private void arrangeStacks(int[] columns, int position, int usedStacks, List<int[]> arrangements) {
+        if (position == lineSize) {
+            arrangements.add(columns.clone());
+            return;
+        }
+        int widthSquare = geometry.getWidthSquare();
+        for (int stack = 0; stack < geometry.getAmountOfHorizontalSquares(); stack++) {
+            if ((usedStacks & 1 << stack) == 0) {
+                arrangeColumns(columns, position, stack * widthSquare, 0, usedStacks | 1 << stack, arrangements);
+            }
+        }
+    }
+
+    private void arrangeColumns(int[] columns, int position, int firstColumn, int usedColumns, int usedStacks,
+                                List<int[]> arrangements) {
+        int widthSquare = geometry.getWidthSquare();
+        if (position % widthSquare == 0 && usedColumns != 0) {
+            arrangeStacks(columns, position, usedStacks, arrangements);
+            return;
+        }
+        for (int i = 0; i < widthSquare; i++) {
+            if ((usedColumns & 1 << i) == 0) {
+                columns[position] = firstColumn + i;
+                arrangeColumns(columns, position + 1, firstColumn, usedColumns | 1 << i, usedStacks, arrangements);
+            }
+        }
+    }
+
+    /**
+     * @return canonical form or null if more than {@link #MAX_TIED_ARRANGEMENTS} arrangements give the smallest
+     * rows, so the form can't be found quickly
+     */
+    CanonicalForm canonicalize(int[][] sudoku) {
+        List<Orientation> orientations = new ArrayList<>();
+        orientations.add(new Orientation(sudoku, false));
+        if (geometry.getHeightSquare() == geometry.getWidthSquare()) {
+            Orientation transposed = new Orientation(transpose(sudoku), true);
+            int comparison = transposed.compareSequences(orientations.get(0));
+            if (comparison > 0) {
+                orientations.clear();
+            }
+            if (comparison >= 0) {
+                orientations.add(transposed);
+            }
+        }
+        List<Arrangement> arrangements = new ArrayList<>();
+        for (Orientation orientation : orientations) {
+            arrangements.add(new Arrangement(orientation, lineSize));
+        }
+
+        char[] key = new char[geometry.getAmountOfCells()];
+        int[] best = new int[lineSize];
+        int[] row = new int[lineSize];
+        for (int position = 0; position < lineSize; position++) {
+            List<Arrangement> smallest = new ArrayList<>();
+            boolean isBestFound = false;
+            for (Arrangement arrangement : arrangements) {
+                Orientation orientation = arrangement.orientation;
+                //Columns are not chosen before the first row
+                int[] columnsIndexes = arrangement.columns < 0 ? orientation.fittingColumns
+                        : new int[]{arrangement.columns};
+                for (int columnsIndex : columnsIndexes) {
+                    int[] columns = columnArrangements[columnsIndex];
+                    for (int candidate = 0; candidate < lineSize; candidate++) {
+                        if (!arrangement.canBeNext(candidate, position, heightSquare)
+                                || !orientation.fitsRowSequence(candidate, position)) {
+                            continue;
+                        }
+                        int[] line = orientation.grid[candidate];
+                        int comparison = isBestFound ? arrangement.compareRow(line, columns, best, row)
+                                : arrangement.relabelRow(line, columns, row);
+                        if (comparison > 0) {
+                            continue;
+                        }
+                        if (comparison < 0 || !isBestFound) {
+                            smallest.clear();
+                            System.arraycopy(row, 0, best, 0, lineSize);
+                            isBestFound = true;
+                        }
+                        smallest.add(arrangement.next(line, columnsIndex, columns, candidate));
+                        if (smallest.size() > MAX_TIED_ARRANGEMENTS) {
+                            return null;
+                        }
+                    }
+                }
+            }
+            for (int j = 0; j < lineSize; j++) {
+                key[position * lineSize + j] = (char) ('0' + best[j]);
+            }
+            arrangements = smallest;
+        }
+        Arrangement result = arrangements.get(0);
+        return new CanonicalForm(new String(key), result.orientation.transposed, result.rows,
+                columnArrangements[result.columns], result.completeLabels());
+    }
+
+    /**
+     * @return amounts of clues of lines ordered the biggest first inside every group of lines, groups ordered
+     * the same way. Lines of any arrangement which gives this sequence go in the same order of amounts
+     */
+    private static int[] getBiggestSequence(int[] amounts, int groupSize) {
+        int amountOfGroups = amounts.length / groupSize;
+        int[][] groups = new int[amountOfGroups][];
+        for (int group = 0; group < amountOfGroups; group++) {
+            groups[group] = getGroupSequence(amounts, group, groupSize);
+        }
+        Arrays.sort(groups, Canonicalizer::compareDescending);
+        int[] result = new int[amounts.length];
+        for (int group = 0; group < amountOfGroups; group++) {
+            System.arraycopy(groups[group], 0, result, group * groupSize, groupSize);
+        }
+        return result;
+    }
+
+    private static int[] getGroupSequence(int[] amounts, int group, int groupSize) {
+        int[] result = Arrays.copyOfRange(amounts, group * groupSize, (group + 1) * groupSize);
+        Arrays.sort(result);
+        for (int i = 0; i < groupSize / 2; i++) {
+            int value = result[i];
+            result[i] = result[groupSize - 1 - i];
+            result[groupSize - 1 - i] = value;
+        }
+        return result;
+    }
+
+    private static int compareDescending(int[] first, int[] second) {
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] != second[i]) {
+                return Integer.compare(second[i], first[i]);
+            }
+        }
+        return 0;
+    }
+
+    private static int[][] transpose(int[][] sudoku) {
+        int[][] result = new int[sudoku.length][sudoku.length];
+        for (int i = 0; i < sudoku.length; i++) {
+            for (int j = 0; j < sudoku.length; j++) {
+                result[j][i] = sudoku[i][j];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The sudoku or the transposed one with sequences of amounts of clues its arrangements must give.
+     */
+    private final class Orientation {
+
+        private final int[][] grid;
+        private final boolean transposed;
+        private final int[] rowAmounts;
+        private final int[] rowSequence;
+        private final int[] columnSequence;
+        //Indexes of column arrangements which give the column sequence
+        private final int[] fittingColumns;
+
+        private Orientation(int[][] grid, boolean transposed) {
+            this.grid = grid;
+            this.transposed = transposed;
+            rowAmounts = new int[lineSize];
+            int[] columnAmounts = new int[lineSize];
+            for (int i = 0; i < lineSize; i++) {
+                for (int j = 0; j < lineSize; j++) {
+                    if (grid[i][j] != 0) {
+                        rowAmounts[i]++;
+                        columnAmounts[j]++;
+                    }
+                }
+            }
+            rowSequence = getBiggestSequence(rowAmounts, heightSquare);
+            columnSequence = getBiggestSequence(columnAmounts, geometry.getWidthSquare());
+            fittingColumns = findColumnArrangements(columnAmounts);
+        }
+
+        private int[] findColumnArrangements(int[] columnAmounts) {
+            int[] result = new int[columnArrangements.length];
+            int amount = 0;
+            nextArrangement:
+            for (int index = 0; index < result.length; index++) {
+                int[] columns = columnArrangements[index];
+                for (int j = 0; j < lineSize; j++) {
+                    if (columnAmounts[columns[j]] != columnSequence[j]) {
+                        continue nextArrangement;
+                    }
+                }
+                result[amount++] = index;
+            }
+            return Arrays.copyOf(result, amount);
+        }
+
+        private int compareSequences(Orientation other) {
+            int comparison = compareDescending(other.rowSequence, rowSequence);
+            return comparison != 0 ? comparison : compareDescending(other.columnSequence, columnSequence);
+        }
+
+        /**
+         * The row must have the amount of clues of the position, and the first row of a band must come from a band
+         * which has the amounts of the band of the position.
+         */
+        private boolean fitsRowSequence(int row, int position) {
+            if (rowAmounts[row] != rowSequence[position]) {
+                return false;
+            }
+            if (position % heightSquare != 0) {
+                return true;
+            }
+            int[] band = getGroupSequence(rowAmounts, row / heightSquare, heightSquare);
+            for (int i = 0; i < heightSquare; i++) {
+                if (band[i] != rowSequence[position + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Orientation, columns and rows chosen so far with labels of numbers met in these rows.
+     */
+    private static final class Arrangement {
+
+        private final Orientation orientation;
+        //Index of the column arrangement, -1 before the first row
+        private int columns = -1;
+        private final int[] rows;
+        private final int[] labels;
+        private int nextLabel = 1;
+        private int usedRows;
+
+        private Arrangement(Orientation orientation, int lineSize) {
+            this.orientation = orientation;
+            rows = new int[lineSize];
+            labels = new int[lineSize + 1];
+        }
+
+        private Arrangement(Arrangement previous) {
+            orientation = previous.orientation;
+            columns = previous.columns;
+            rows = previous.rows.clone();
+            labels = previous.labels.clone();
+            nextLabel = previous.nextLabel;
+            usedRows = previous.usedRows;
+        }
+
+        /**
+         * Rows of a band stay together: the first row of a band may be any unused row, the others come from the
+         * band of the previous row.
+         */
+        private boolean canBeNext(int row, int position, int heightSquare) {
+            if ((usedRows & 1 << row) != 0) {
+                return false;
+            }
+            return position % heightSquare == 0 || row / heightSquare == rows[position - 1] / heightSquare;
+        }
+
+        /**
+         * Relabels the row without remembering new labels.
+         *
+         * @return -1 as the row is the first one compared
+         */
+        private int relabelRow(int[] line, int[] columnOrder, int[] result) {
+            int label = nextLabel;
+            int assigned = 0;
+            for (int j = 0; j < columnOrder.length; j++) {
+                int number = line[columnOrder[j]];
+                if (number == 0) {
+                    result[j] = 0;
+                } else if (labels[number] != 0) {
+                    result[j] = labels[number];
+                } else if ((assigned & 1 << number) != 0) {
+                    result[j] = findAssigned(line, columnOrder, j, number, result);
+                } else {
+                    assigned |= 1 << number;
+                    result[j] = label++;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Relabels the row and compares it with the best one, stops as soon as it's bigger.
+         *
+         * @return negative, zero or positive as the row is smaller, equal or bigger than the best one
+         */
+        private int compareRow(int[] line, int[] columnOrder, int[] best, int[] result) {
+            int label = nextLabel;
+            int assigned = 0;
+            int comparison = 0;
+            for (int j = 0; j < columnOrder.length; j++) {
+                int number = line[columnOrder[j]];
+                int value;
+                if (number == 0) {
+                    value = 0;
+                } else if (labels[number] != 0) {
+                    value = labels[number];
+                } else if ((assigned & 1 << number) != 0) {
+                    value = findAssigned(line, columnOrder, j, number, result);
+                } else {
+                    assigned |= 1 << number;
+                    value = label++;
+                }
+                if (comparison == 0) {
+                    if (value > best[j]) {
+                        return 1;
+                    }
+                    comparison = value < best[j] ? -1 : 0;
+                }
+                result[j] = value;
+            }
+            return comparison;
+        }
+
+        /**
+         * Numbers don't repeat in a correct row, but a wrong one may have them: the label is the one given before.
+         */
+        private static int findAssigned(int[] line, int[] columnOrder, int position, int number, int[] result) {
+            for (int j = 0; j < position; j++) {
+                if (line[columnOrder[j]] == number) {
+                    return result[j];
+                }
+            }
+            throw new IllegalStateException("Number " + number + " has no label");
+        }
+
+        private Arrangement next(int[] line, int columnsIndex, int[] columnOrder, int row) {
+            Arrangement next = new Arrangement(this);
+            next.columns = columnsIndex;
+            int position = Integer.bitCount(usedRows);
+            next.rows[position] = row;
+            next.usedRows |= 1 << row;
+            for (int column : columnOrder) {
+                int number = line[column];
+                if (number != 0 && next.labels[number] == 0) {
+                    next.labels[number] = next.nextLabel++;
+                }
+            }
+            return next;
+        }
+
+        /**
+         * Numbers missing from the sudoku get the labels left in their order.
+         */
+        private int[] completeLabels() {
+            int[] result = labels.clone();
+            int label = nextLabel;
+            for (int number = 1; number < result.length; number++) {
+                if (result[number] == 0) {
+                    result[number] = label++;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs work over indexes from 0 to an amount on an executor, split into chunks.
+ */
+final class Chunks {
+
+    //More chunks than threads keep all threads busy when some items are much harder than others
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private Chunks() {
+    }
+
+    /**
+     * Runs all chunks on the executor and waits for all of them.
+     */
+    static void run(ExecutorService executor, int parallelism, int amount, Chunk chunk) {
+        int chunkSize = Math.max(1, amount / (parallelism * CHUNKS_PER_THREAD));
+        List<Future<?>> chunks = new ArrayList<>();
+        for (int from = 0; from < amount; from += chunkSize) {
+            int fromIndex = from;
+            int toIndex = Math.min(from + chunkSize, amount);
+            chunks.add(executor.submit(() -> chunk.run(fromIndex, toIndex)));
+        }
+        for (Future<?> future : chunks) {
+            await(future);
+        }
+    }
+
+    static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Waiting for a chunk was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    interface Chunk {
+
+        void run(int fromIndex, int toIndex);
+    }
+}
@@ -0,0 +1,37 @@
+package sudoku;
+
+/**
+ * Grade of a sudoku by the most difficult technique {@link Solver} needs to solve it, see
+ * {@link Technique#getDifficulty}. {@link Generator} grades with the small squares, column-rows and local tables
+ * methods, which the comments below refer to.
+ */
+public enum Difficulty {
+
+    //Small squares method is enough
+    EASY,
+    //Column-rows method is needed
+    MEDIUM,
+    //Local tables method is needed
+    HARD,
+    //Logical methods get stuck, search is needed
+    EXPERT;
+
+    /**
+     * Only techniques which placed cells count. An expensive technique runs only when the cheaper ones are stuck, so
+     * a cell it places could not be placed otherwise, while candidates it removes may not lead anywhere.
+     *
+     * @return grade of the sudoku which statistics were collected while solving it
+     */
+    public static Difficulty of(SolveStats stats) {
+        if (stats.getPlacedBySearch() > 0) {
+            return EXPERT;
+        }
+        Difficulty result = EASY;
+        for (Technique technique : Technique.values()) {
+            if (stats.getPlacedCells(technique) > 0 && technique.getDifficulty().compareTo(result) > 0) {
+                result = technique.getDifficulty();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,15 @@
+package sudoku;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class GeneratedPuzzle {
+
+    private int[][] puzzle;
+    //The only solution of the puzzle
+    private int[][] solution;
+    private Difficulty difficulty;
+    private int amountOfClues;
+}
@@ -0,0 +1,196 @@
+package sudoku;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Generates sudoku with a unique solution on all cores and grades them by {@link Difficulty}. A solution is made
+ * by shuffling numbers of independent squares on the diagonal and solving the rest, then clues are removed one by
+ * one in random order while the solution stays unique, so every puzzle is minimal.
+ */
+@Log4j2
+public class Generator {
+
+    //Amount of puzzles generated before they are written to files
+    private static final int WRITE_BATCH_SIZE = 16 * 1024;
+    private static final long SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    //Methods the grades are defined by, see Difficulty, whatever they leave is found by search
+    static final Set<Technique> GRADING_TECHNIQUES =
+            EnumSet.of(Technique.SMALL_SQUARES, Technique.COLUMN_ROWS, Technique.LOCAL_TABLES);
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final Geometry geometry;
+    private final long seed;
+    //Every thread checks uniqueness with one solver and grades with another, which collects statistics
+    private final ThreadLocal<Solver> solvers;
+    private final ThreadLocal<Solver> graders;
+
+    public static void main(String[] args) throws IOException {
+        if (args == null || args.length < 2) {
+            System.out.println("Amount of puzzles and output directory must be specified, seed is optional");
+            return;
+        }
+        int amount = Integer.parseInt(args[0]);
+        Path directory = Files.createDirectories(Paths.get(args[1]));
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        Map<Difficulty, Integer> amounts = new Generator(seed).generate(amount, directory);
+        System.out.printf("Generated %d sudoku with seed %d: %s%n", amount, seed, amounts);
+    }
+
+    public Generator(long seed) {
+        this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(), Geometry.STANDARD, seed);
+    }
+
+    public Generator(ExecutorService executor, int parallelism, Geometry geometry, long seed) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be positive, but was " + parallelism);
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.geometry = geometry;
+        this.seed = seed;
+        solvers = ThreadLocal.withInitial(() -> new Solver(geometry));
+        graders = ThreadLocal.withInitial(() -> new Solver(geometry, true, GRADING_TECHNIQUES));
+    }
+
+    /**
+     * @return puzzle number index of the seed, the same whichever thread generates it
+     */
+    public GeneratedPuzzle generate(long index) {
+        Random random = new Random(seed + index * SEED_MULTIPLIER);
+        int[][] solution = createSolution(random);
+        int[][] puzzle = copy(solution);
+        int amountOfClues = removeClues(puzzle, random);
+
+        Solver grader = graders.get();
+        grader.solve(copy(puzzle));
+        return new GeneratedPuzzle(puzzle, solution, Difficulty.of(grader.getLastStats()), amountOfClues);
+    }
+
+    /**
+     * @return puzzles with numbers from fromIndex, in order
+     */
+    public List<GeneratedPuzzle> generate(long fromIndex, int amount) {
+        GeneratedPuzzle[] result = new GeneratedPuzzle[amount];
+        Chunks.run(executor, parallelism, amount, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = generate(fromIndex + i);
+            }
+        });
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Writes puzzles into files of the directory named by difficulty, e.g. easy.txt, batch by batch, so memory
+     * use doesn't depend on the amount.
+     *
+     * @return amount of puzzles of every difficulty
+     */
+    public Map<Difficulty, Integer> generate(int amount, Path directory) throws IOException {
+        long start = System.nanoTime();
+        Map<Difficulty, PuzzleWriter> writers = new EnumMap<>(Difficulty.class);
+        Map<Difficulty, Integer> amounts = new EnumMap<>(Difficulty.class);
+        try {
+            for (Difficulty difficulty : Difficulty.values()) {
+                Path file = directory.resolve(difficulty.name().toLowerCase(Locale.ROOT) + ".txt");
+                writers.put(difficulty, new PuzzleWriter(file, geometry));
+                amounts.put(difficulty, 0);
+            }
+            for (int from = 0; from < amount; from += WRITE_BATCH_SIZE) {
+                for (GeneratedPuzzle puzzle : generate(from, Math.min(WRITE_BATCH_SIZE, amount - from))) {
+                    writers.get(puzzle.getDifficulty()).write(puzzle.getPuzzle());
+                    amounts.merge(puzzle.getDifficulty(), 1, Integer::sum);
+                }
+            }
+        } finally {
+            for (PuzzleWriter writer : writers.values()) {
+                writer.close();
+            }
+        }
+        log.info("Generated {} sudoku in {} ms", amount, (System.nanoTime() - start) / 1_000_000);
+        return amounts;
+    }
+
+    /**
+     * Squares on the diagonal share no row or column, so any numbers in them are consistent.
+     */
+    private int[][] createSolution(Random random) {
+        int lineSize = geometry.getLineSize();
+        int widthSquare = geometry.getWidthSquare();
+        int[][] solution = new int[lineSize][lineSize];
+        int[] numbers = new int[lineSize];
+        int amountOfDiagonalSquares = Math.min(geometry.getAmountOfVerticalSquares(),
+                geometry.getAmountOfHorizontalSquares());
+        for (int d = 0; d < amountOfDiagonalSquares; d++) {
+            for (int i = 0; i < lineSize; i++) {
+                numbers[i] = i + 1;
+            }
+            shuffle(numbers, random);
+            int shiftVertical = d * geometry.getHeightSquare();
+            int shiftHorizontal = d * widthSquare;
+            for (int i = 0; i < lineSize; i++) {
+                solution[shiftVertical + i / widthSquare][shiftHorizontal + i % widthSquare] = numbers[i];
+            }
+        }
+        solvers.get().solve(solution);
+        return solution;
+    }
+
+    /**
+     * @return amount of clues left
+     */
+    private int removeClues(int[][] puzzle, Random random) {
+        int lineSize = geometry.getLineSize();
+        int[] cells = new int[geometry.getAmountOfCells()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = i;
+        }
+        shuffle(cells, random);
+        Solver solver = solvers.get();
+        int amountOfClues = cells.length;
+        for (int cell : cells) {
+            int indexRow = cell / lineSize;
+            int indexColumn = cell % lineSize;
+            int number = puzzle[indexRow][indexColumn];
+            puzzle[indexRow][indexColumn] = 0;
+            if (solver.countSolutions(puzzle, 2) == 1) {
+                amountOfClues--;
+            } else {
+                puzzle[indexRow][indexColumn] = number;
+            }
+        }
+        return amountOfClues;
+    }
+
+    private static void shuffle(int[] array, Random random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = array[i];
+            array[i] = array[j];
+            array[j] = value;
+        }
+    }
+
+    private static int[][] copy(int[][] sudoku) {
+        int[][] result = new int[sudoku.length][];
+        for (int i = 0; i < sudoku.length; i++) {
+            result[i] = sudoku[i].clone();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,167 @@
+package sudoku;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Sizes of a sudoku: a line has {@code heightSquare * widthSquare} cells and numbers from 1 to the line size,
+ * a square has {@code heightSquare} rows and {@code widthSquare} columns. Candidates of a cell are bits of
+ * an int, so a line can have up to 31 cells, enough for 25x25 sudoku.
+ */
+@Getter
+public final class Geometry {
+
+    public static final Geometry STANDARD = new Geometry(3, 3);
+
+    private static final int MAX_LINE_SIZE = Integer.SIZE - 1;
+
+    private final int heightSquare;
+    private final int widthSquare;
+    private final int lineSize;
+    private final int amountOfCells;
+    //Units are numbered rows first, then columns, then squares
+    private final int amountOfUnits;
+    private final int allNumbers;
+    //Sum of all numbers of a line
+    private final int sumOfNumbers;
+
+    //Cells of every unit: a row left to right, a column top down, a square row by row
+    @Getter(AccessLevel.NONE)
+    private final int[][] unitCells;
+    //Cells which share a row, a column or a square with the cell, every one once
+    @Getter(AccessLevel.NONE)
+    private final int[][] peers;
+    //Row, column and square index of every cell
+    @Getter(AccessLevel.NONE)
+    private final int[] rowOfCell;
+    @Getter(AccessLevel.NONE)
+    private final int[] columnOfCell;
+    @Getter(AccessLevel.NONE)
+    private final int[] squareOfCell;
+
+    public Geometry(int heightSquare, int widthSquare) {
+        if (heightSquare < 1 || widthSquare < 1 || heightSquare * widthSquare > MAX_LINE_SIZE) {
+            throw new SudokuException(String.format("Square %dx%d is not supported, line can have 1...%d cells",
+                    heightSquare, widthSquare, MAX_LINE_SIZE));
+        }
+        this.heightSquare = heightSquare;
+        this.widthSquare = widthSquare;
+        lineSize = heightSquare * widthSquare;
+        amountOfCells = lineSize * lineSize;
+        amountOfUnits = 3 * lineSize;
+        allNumbers = (int) ((1L << lineSize) - 1);
+        sumOfNumbers = lineSize * (lineSize + 1) / 2;
+        rowOfCell = new int[amountOfCells];
+        columnOfCell = new int[amountOfCells];
+        squareOfCell = new int[amountOfCells];
+        for (int cell = 0; cell < amountOfCells; cell++) {
+            rowOfCell[cell] = cell / lineSize;
+            columnOfCell[cell] = cell % lineSize;
+            squareOfCell[cell] = cell / lineSize / heightSquare * getAmountOfHorizontalSquares()
+                    + cell % lineSize / widthSquare;
+        }
+        unitCells = createUnitCells();
+        peers = createPeers();
+    }
+
+    private int[][] createUnitCells() {
+        int[][] result = new int[amountOfUnits][lineSize];
+        for (int i = 0; i < lineSize; i++) {
+            int shiftVertical = getShiftVertical(i);
+            int shiftHorizontal = getShiftHorizontal(i);
+            for (int j = 0; j < lineSize; j++) {
+                result[i][j] = i * lineSize + j;
+                result[getColumnUnit(i)][j] = j * lineSize + i;
+                result[getSquareUnit(i)][j] = (shiftVertical + j / widthSquare) * lineSize + shiftHorizontal
+                        + j % widthSquare;
+            }
+        }
+        return result;
+    }
+
+    private int[][] createPeers() {
+        int[][] result = new int[amountOfCells][];
+        boolean[] isPeer = new boolean[amountOfCells];
+        for (int cell = 0; cell < amountOfCells; cell++) {
+            int amountOfPeers = 0;
+            int[] units = {rowOfCell[cell], getColumnUnit(columnOfCell[cell]), getSquareUnit(squareOfCell[cell])};
+            for (int unit : units) {
+                for (int peer : unitCells[unit]) {
+                    if (peer != cell && !isPeer[peer]) {
+                        isPeer[peer] = true;
+                        amountOfPeers++;
+                    }
+                }
+            }
+            result[cell] = new int[amountOfPeers];
+            for (int peer = 0, i = 0; peer < amountOfCells; peer++) {
+                if (isPeer[peer]) {
+                    result[cell][i++] = peer;
+                    isPeer[peer] = false;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return geometry of sudoku with NxN squares, 16x16 for N = 4
+     */
+    public static Geometry ofSquareSize(int squareSize) {
+        return squareSize == STANDARD.heightSquare ? STANDARD : new Geometry(squareSize, squareSize);
+    }
+
+    int getAmountOfVerticalSquares() {
+        return lineSize / heightSquare;
+    }
+
+    int getAmountOfHorizontalSquares() {
+        return lineSize / widthSquare;
+    }
+
+    int getColumnUnit(int indexColumn) {
+        return lineSize + indexColumn;
+    }
+
+    int getSquareUnit(int squareIndex) {
+        return 2 * lineSize + squareIndex;
+    }
+
+    int getSquareIndex(int indexRow, int indexColumn) {
+        return squareOfCell[indexRow * lineSize + indexColumn];
+    }
+
+    int getRowIndex(int cell) {
+        return rowOfCell[cell];
+    }
+
+    int getColumnIndex(int cell) {
+        return columnOfCell[cell];
+    }
+
+    int getSquareIndex(int cell) {
+        return squareOfCell[cell];
+    }
+
+    /**
+     * @return shared table, must not be changed
+     */
+    int[] getUnitCells(int unit) {
+        return unitCells[unit];
+    }
+
+    /**
+     * @return shared table, must not be changed
+     */
+    int[] getPeers(int cell) {
+        return peers[cell];
+    }
+
+    int getShiftVertical(int squareIndex) {
+        return squareIndex / getAmountOfHorizontalSquares() * heightSquare;
+    }
+
+    int getShiftHorizontal(int squareIndex) {
+        return squareIndex % getAmountOfHorizontalSquares() * widthSquare;
+    }
+}
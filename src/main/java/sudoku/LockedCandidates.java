@@ -0,0 +1,84 @@
+package sudoku;
+
+/**
+ * Locked candidates: a number of a square which fits only cells of one line can't be anywhere else in the line
+ * (pointing pairs), a number of a line which fits only cells of one square can't be anywhere else in the square
+ * (box/line reduction).
+ */
+class LockedCandidates {
+
+    private final Geometry geometry;
+    private final Candidates candidates;
+    private final int lineSize;
+    private final int squareUnits;
+
+    LockedCandidates(Candidates candidates) {
+        this.candidates = candidates;
+        geometry = candidates.getGeometry();
+        lineSize = geometry.getLineSize();
+        squareUnits = geometry.getSquareUnit(0);
+    }
+
+    void applyPointing(int unit) {
+        if (unit < squareUnits) {
+            return;
+        }
+        int squareIndex = unit - squareUnits;
+        int[] squareCells = geometry.getUnitCells(unit);
+        for (int numbers = candidates.getUnitCandidates(unit); numbers != 0; numbers &= numbers - 1) {
+            int bit = numbers & -numbers;
+            int rows = 0;
+            int columns = 0;
+            for (int cell : squareCells) {
+                if ((candidates.get(cell) & bit) != 0) {
+                    rows |= 1 << geometry.getRowIndex(cell);
+                    columns |= 1 << geometry.getColumnIndex(cell);
+                }
+            }
+            if (Integer.bitCount(rows) == 1) {
+                eliminateOutsideSquare(Integer.numberOfTrailingZeros(rows), squareIndex, bit);
+            }
+            if (Integer.bitCount(columns) == 1) {
+                eliminateOutsideSquare(geometry.getColumnUnit(Integer.numberOfTrailingZeros(columns)), squareIndex,
+                        bit);
+            }
+        }
+    }
+
+    void applyBoxLineReduction(int unit) {
+        if (unit >= squareUnits) {
+            return;
+        }
+        int[] lineCells = geometry.getUnitCells(unit);
+        for (int numbers = candidates.getUnitCandidates(unit); numbers != 0; numbers &= numbers - 1) {
+            int bit = numbers & -numbers;
+            int squares = 0;
+            for (int cell : lineCells) {
+                if ((candidates.get(cell) & bit) != 0) {
+                    squares |= 1 << geometry.getSquareIndex(cell);
+                }
+            }
+            if (Integer.bitCount(squares) != 1) {
+                continue;
+            }
+            for (int cell : geometry.getUnitCells(geometry.getSquareUnit(Integer.numberOfTrailingZeros(squares)))) {
+                if (!isInLine(cell, unit)) {
+                    candidates.eliminate(cell, bit);
+                }
+            }
+        }
+    }
+
+    private void eliminateOutsideSquare(int lineUnit, int squareIndex, int mask) {
+        for (int cell : geometry.getUnitCells(lineUnit)) {
+            if (geometry.getSquareIndex(cell) != squareIndex) {
+                candidates.eliminate(cell, mask);
+            }
+        }
+    }
+
+    private boolean isInLine(int cell, int lineUnit) {
+        return lineUnit < lineSize ? geometry.getRowIndex(cell) == lineUnit
+                : geometry.getColumnUnit(geometry.getColumnIndex(cell)) == lineUnit;
+    }
+}
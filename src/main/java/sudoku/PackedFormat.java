@@ -0,0 +1,114 @@
+package sudoku;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary format of sudoku with 4 bits per cell: two cells per byte row by row, the first cell in the high half,
+ * 0 for an empty cell. A 9x9 sudoku takes 41 bytes and records follow each other without separators, so the
+ * record of a sudoku is found by its index. Sudoku up to 15x15 fit into 4 bits.
+ */
+public class PackedFormat {
+
+    private static final int MAX_NUMBER = 0xF;
+
+    private final int lineSize;
+    private final int amountOfCells;
+    private final int recordSize;
+
+    public PackedFormat() {
+        this(Geometry.STANDARD);
+    }
+
+    public PackedFormat(Geometry geometry) {
+        lineSize = geometry.getLineSize();
+        if (lineSize > MAX_NUMBER) {
+            throw new IllegalArgumentException(String.format("Numbers up to %d don't fit into 4 bits", lineSize));
+        }
+        amountOfCells = geometry.getAmountOfCells();
+        recordSize = getRecordSize(amountOfCells);
+    }
+
+    /**
+     * @return size of the record of a sudoku in bytes
+     */
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    /**
+     * @return amount of records between the position and the limit of the buffer
+     */
+    public int getAmountOfRecords(ByteBuffer buffer) {
+        if (buffer.remaining() % recordSize != 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Buffer of %d bytes doesn't consist of records of %d bytes", buffer.remaining(), recordSize));
+        }
+        return buffer.remaining() / recordSize;
+    }
+
+    /**
+     * Writes the sudoku into the buffer at the offset, the position of the buffer is not changed.
+     */
+    public void encode(int[][] sudoku, ByteBuffer buffer, int offset) {
+        for (int cell = 0; cell < amountOfCells; cell += 2) {
+            int high = sudoku[cell / lineSize][cell % lineSize];
+            int next = cell + 1;
+            int low = next < amountOfCells ? sudoku[next / lineSize][next % lineSize] : 0;
+            buffer.put(offset + cell / 2, (byte) (high << 4 | low));
+        }
+    }
+
+    /**
+     * Reads the sudoku from the buffer at the offset, the position of the buffer is not changed.
+     */
+    public void decode(ByteBuffer buffer, int offset, int[][] sudoku) {
+        for (int cell = 0; cell < amountOfCells; cell++) {
+            sudoku[cell / lineSize][cell % lineSize] = get(buffer, offset, cell);
+        }
+    }
+
+    /**
+     * @return heap buffer with records of all sudoku in order, ready to be read
+     */
+    public ByteBuffer encode(List<int[][]> puzzles) {
+        ByteBuffer result = ByteBuffer.allocate(puzzles.size() * recordSize);
+        for (int i = 0; i < puzzles.size(); i++) {
+            encode(puzzles.get(i), result, i * recordSize);
+        }
+        return result;
+    }
+
+    /**
+     * @return sudoku of all records between the position and the limit of the buffer
+     */
+    public List<int[][]> decode(ByteBuffer buffer) {
+        int amountOfRecords = getAmountOfRecords(buffer);
+        List<int[][]> result = new ArrayList<>(amountOfRecords);
+        for (int i = 0; i < amountOfRecords; i++) {
+            int[][] sudoku = new int[lineSize][lineSize];
+            decode(buffer, buffer.position() + i * recordSize, sudoku);
+            result.add(sudoku);
+        }
+        return result;
+    }
+
+    /**
+     * Makes the record at the offset an empty grid.
+     */
+    void clear(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < recordSize; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+    }
+
+    static int getRecordSize(int amountOfCells) {
+        return (amountOfCells + 1) / 2;
+    }
+
+    static int get(ByteBuffer buffer, int offset, int cell) {
+        int pair = buffer.get(offset + cell / 2);
+        return (cell & 1) == 0 ? pair >> 4 & MAX_NUMBER : pair & MAX_NUMBER;
+    }
+}
@@ -0,0 +1,118 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solves a single sudoku on all threads of a fork-join pool, for very hard or big sudoku where one thread takes
+ * too long. The search tree is split at the top branch points into tasks while the pool is short of work, every
+ * task searches its own copy of candidates. Tasks share the counter of found solutions and all of them stop
+ * once it reaches the limit.
+ */
+public class ParallelSolver {
+
+    //A task keeps splitting while its thread has fewer tasks queued than other threads may steal
+    private static final int MAX_SURPLUS_TASKS = 2;
+    private static final String NO_SOLUTION = "Search found no solution";
+
+    private final ForkJoinPool pool;
+    private final Geometry geometry;
+    private final ThreadLocal<Solver> solvers;
+    private final ThreadLocal<Search> searches;
+
+    public ParallelSolver() {
+        this(ForkJoinPool.commonPool(), Geometry.STANDARD);
+    }
+
+    public ParallelSolver(ForkJoinPool pool, Geometry geometry) {
+        this.pool = pool;
+        this.geometry = geometry;
+        solvers = ThreadLocal.withInitial(() -> new Solver(geometry));
+        searches = ThreadLocal.withInitial(() -> new Search(geometry));
+    }
+
+    /**
+     * Runs logical methods in the calling thread and searches what they leave in the pool. The given array is
+     * not changed.
+     */
+    public SolveResult solve(int[][] sudoku) {
+        Solver solver = solvers.get();
+        SolveResult logicalResult = solver.trySolveLogically(sudoku);
+        if (logicalResult.getStatus() != SolveStatus.PARTIAL) {
+            return logicalResult;
+        }
+        int[][] grid = logicalResult.getSolution();
+        AtomicReference<Candidates> solution = new AtomicReference<>();
+        pool.invoke(new Branch(solver.prepareCounting(grid, 1).copy(), 1, new AtomicLong(), solution));
+        if (solution.get() == null) {
+            return new SolveResult(SolveStatus.CONTRADICTION, grid, NO_SOLUTION,
+                    logicalResult.getAmountOfEmptyCells());
+        }
+        int lineSize = geometry.getLineSize();
+        for (int cell = 0; cell < geometry.getAmountOfCells(); cell++) {
+            grid[cell / lineSize][cell % lineSize] = solution.get().getNumber(cell);
+        }
+        return new SolveResult(SolveStatus.SOLVED, grid, null, 0);
+    }
+
+    /**
+     * @return amount of solutions, no more than the limit, see {@link Solver#countSolutions(int[][], long)}
+     */
+    public long countSolutions(int[][] sudoku, long limit) {
+        Candidates root = solvers.get().prepareCounting(sudoku, limit);
+        if (root == null) {
+            return 0;
+        }
+        AtomicLong found = new AtomicLong();
+        pool.invoke(new Branch(root.copy(), limit, found, null));
+        return Math.min(found.get(), limit);
+    }
+
+    private class Branch extends RecursiveAction {
+
+        private final Candidates candidates;
+        private final long limit;
+        //Shared by all tasks of the sudoku, reaching the limit cancels them
+        private final AtomicLong found;
+        private final AtomicReference<Candidates> firstSolution;
+
+        Branch(Candidates candidates, long limit, AtomicLong found, AtomicReference<Candidates> firstSolution) {
+            this.candidates = candidates;
+            this.limit = limit;
+            this.found = found;
+            this.firstSolution = firstSolution;
+        }
+
+        @Override
+        protected void compute() {
+            if (found.get() >= limit) {
+                return;
+            }
+            if (getSurplusQueuedTaskCount() >= MAX_SURPLUS_TASKS) {
+                searches.get().count(candidates, limit, found, firstSolution);
+                return;
+            }
+            if (!candidates.propagateSingles()) {
+                return;
+            }
+            int cell = candidates.getCellWithFewestCandidates();
+            if (cell < 0) {
+                if (found.incrementAndGet() == 1 && firstSolution != null) {
+                    firstSolution.set(candidates);
+                }
+                return;
+            }
+            List<Branch> branches = new ArrayList<>();
+            for (int mask = candidates.get(cell); mask != 0; mask &= mask - 1) {
+                Candidates branch = candidates.copy();
+                branch.place(cell, Candidates.numberOf(mask));
+                branches.add(new Branch(branch, limit, found, firstSolution));
+            }
+            invokeAll(branches);
+        }
+    }
+}
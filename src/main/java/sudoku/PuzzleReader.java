@@ -0,0 +1,113 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads sudoku from a file with one sudoku per line, 81 characters row by row for 9x9 sudoku. Empty cells are
+ * '0' or '.', numbers above 9 are letters from 'A', everything after the last cell of a line is ignored. The file
+ * is mapped into memory window by window, so it can be bigger than the heap, and cells are parsed right from the
+ * mapped bytes.
+ */
+public class PuzzleReader implements Closeable {
+
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final int FIRST_LETTER_NUMBER = 10;
+
+    private final int lineSize;
+    private final int amountOfCells;
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private long lineNumber;
+
+    public PuzzleReader(Path path) throws IOException {
+        this(path, Geometry.STANDARD);
+    }
+
+    public PuzzleReader(Path path, Geometry geometry) throws IOException {
+        lineSize = geometry.getLineSize();
+        amountOfCells = geometry.getAmountOfCells();
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+    }
+
+    /**
+     * Parses next sudoku into the array.
+     *
+     * @return false if there are no sudoku left
+     */
+    public boolean read(int[][] sudoku) throws IOException {
+        skipLineSeparators();
+        if (position >= size) {
+            return false;
+        }
+        lineNumber++;
+        for (int i = 0; i < amountOfCells; i++) {
+            if (position >= size) {
+                throw new SudokuException(String.format("Line %d has only %d cells", lineNumber, i));
+            }
+            sudoku[i / lineSize][i % lineSize] = toNumber(get());
+        }
+        skipRestOfLine();
+        return true;
+    }
+
+    private int toNumber(byte character) {
+        int number = -1;
+        if (character == '.') {
+            number = 0;
+        } else if (character >= '0' && character <= '9') {
+            number = character - '0';
+        } else if (character >= 'A' && character <= 'Z') {
+            number = character - 'A' + FIRST_LETTER_NUMBER;
+        }
+        if (number < 0 || number > lineSize) {
+            throw new SudokuException(String.format("Line %d has wrong character '%c'", lineNumber,
+                    (char) character));
+        }
+        return number;
+    }
+
+    private void skipLineSeparators() throws IOException {
+        while (position < size) {
+            byte character = peek();
+            if (character != '\n' && character != '\r') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private void skipRestOfLine() throws IOException {
+        while (position < size && peek() != '\n') {
+            position++;
+        }
+    }
+
+    private byte get() throws IOException {
+        byte character = peek();
+        position++;
+        return character;
+    }
+
+    private byte peek() throws IOException {
+        if (window == null || position >= windowStart + window.limit()) {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, size - position));
+        }
+        return window.get((int) (position - windowStart));
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,48 @@
+package sudoku;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes sudoku in the format of {@link PuzzleReader}: one sudoku per line, 81 digits row by row for 9x9 sudoku.
+ */
+public class PuzzleWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int FIRST_LETTER_NUMBER = 10;
+
+    private final int lineSize;
+    private final OutputStream out;
+    private final byte[] line;
+
+    public PuzzleWriter(Path path) throws IOException {
+        this(path, Geometry.STANDARD);
+    }
+
+    public PuzzleWriter(Path path, Geometry geometry) throws IOException {
+        lineSize = geometry.getLineSize();
+        out = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+        line = new byte[geometry.getAmountOfCells() + 1];
+        line[line.length - 1] = '\n';
+    }
+
+    public void write(int[][] sudoku) throws IOException {
+        for (int i = 0; i < lineSize; i++) {
+            for (int j = 0; j < lineSize; j++) {
+                int number = sudoku[i][j];
+                line[i * lineSize + j] = (byte) (number < FIRST_LETTER_NUMBER ? '0' + number
+                        : 'A' + number - FIRST_LETTER_NUMBER);
+            }
+        }
+        out.write(line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,133 @@
+package sudoku;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Depth first search over candidates for sudoku which can't be finished by logical methods. Every step tries
+ * numbers of the cell with the fewest candidates and places all singles before going deeper. All branches
+ * work on one instance of candidates and a failed branch is rolled back through its trail of changes.
+ */
+class Search {
+
+    //Candidates being searched, created once and reused from one sudoku to another
+    private final Candidates current;
+    //Nodes visited by the last search
+    private long amountOfNodes;
+    //Limits of the last search, see Budget
+    private long maxNodes = Long.MAX_VALUE;
+    private long deadline = Budget.NO_DEADLINE;
+    private boolean overBudget;
+
+    Search(Geometry geometry) {
+        current = new Candidates(geometry);
+        current.enableTrail();
+    }
+
+    /**
+     * @return solved copy of candidates or null if sudoku has no solution. The copy belongs to the search and
+     * is overwritten by the next call
+     */
+    Candidates solve(Candidates candidates) {
+        return solve(candidates, Long.MAX_VALUE, Budget.NO_DEADLINE);
+    }
+
+    /**
+     * The same as {@link #solve(Candidates)} which gives up after the amount of nodes or at the deadline of
+     * {@link System#nanoTime}, then it also returns null and {@link #isOverBudget} tells why.
+     */
+    Candidates solve(Candidates candidates, long maxNodes, long deadline) {
+        start(maxNodes, deadline);
+        candidates.copyTo(current);
+        return search() ? current : null;
+    }
+
+    /**
+     * Adds every solution found to the counter until it reaches the limit. The counter may be shared by searches
+     * of different branches running at once, then all of them stop at the limit.
+     */
+    void count(Candidates candidates, long limit, AtomicLong found) {
+        count(candidates, limit, found, null);
+    }
+
+    /**
+     * The same as {@link #count(Candidates, long, AtomicLong)}, and the first solution found by any of the
+     * searches sharing the counter is copied into the holder.
+     */
+    void count(Candidates candidates, long limit, AtomicLong found, AtomicReference<Candidates> firstSolution) {
+        start(Long.MAX_VALUE, Budget.NO_DEADLINE);
+        candidates.copyTo(current);
+        count(limit, found, firstSolution);
+    }
+
+    long getAmountOfNodes() {
+        return amountOfNodes;
+    }
+
+    boolean isOverBudget() {
+        return overBudget;
+    }
+
+    private void start(long maxNodes, long deadline) {
+        amountOfNodes = 0;
+        this.maxNodes = maxNodes;
+        this.deadline = deadline;
+        overBudget = false;
+    }
+
+    /**
+     * Counts a node and checks the budget, the clock only once per some nodes.
+     *
+     * @return false if the budget is over
+     */
+    private boolean visit() {
+        amountOfNodes++;
+        if (amountOfNodes > maxNodes
+                || (amountOfNodes & Budget.CLOCK_INTERVAL_MASK) == 0 && Budget.isPast(deadline)) {
+            overBudget = true;
+        }
+        return !overBudget;
+    }
+
+    private boolean search() {
+        if (!visit() || !current.propagateSingles()) {
+            return false;
+        }
+        int cell = current.getCellWithFewestCandidates();
+        if (cell < 0) {
+            return true;
+        }
+        int checkpoint = current.checkpoint();
+        for (int mask = current.get(cell); mask != 0; mask &= mask - 1) {
+            current.place(cell, Candidates.numberOf(mask));
+            if (search()) {
+                return true;
+            }
+            if (overBudget) {
+                return false;
+            }
+            current.rollback(checkpoint);
+        }
+        return false;
+    }
+
+    private void count(long limit, AtomicLong found, AtomicReference<Candidates> firstSolution) {
+        amountOfNodes++;
+        if (!current.propagateSingles()) {
+            return;
+        }
+        int cell = current.getCellWithFewestCandidates();
+        if (cell < 0) {
+            if (found.incrementAndGet() == 1 && firstSolution != null) {
+                firstSolution.set(current.copy());
+            }
+            return;
+        }
+        int checkpoint = current.checkpoint();
+        for (int mask = current.get(cell); mask != 0 && found.get() < limit; mask &= mask - 1) {
+            current.place(cell, Candidates.numberOf(mask));
+            count(limit, found, firstSolution);
+            current.rollback(checkpoint);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package sudoku;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Solutions of recently solved sudoku, shared by solvers of all threads. A sudoku is looked up by its canonical
+ * form, so a sudoku with relabeled numbers, transposed or with rows and columns swapped inside the rules finds the
+ * solution of the original one. The least recently used solution is dropped when the cache is full.
+ */
+public class SolutionCache {
+
+    //Proven least amount of clues of 9x9 sudoku with one solution
+    private static final int MIN_CLUES_9X9 = 17;
+
+    private final Geometry geometry;
+    //Sudoku with fewer clues have many solutions and many equivalent arrangements, they are not cached
+    private final int minClues;
+    private final Canonicalizer canonicalizer;
+    //Canonical form of a sudoku to the solution in the same form, in order of access
+    private final Map<String, int[][]> solutions;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public SolutionCache(int capacity) {
+        this(Geometry.STANDARD, capacity);
+    }
+
+    public SolutionCache(Geometry geometry, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity should be positive, but was " + capacity);
+        }
+        if (!Canonicalizer.isSupported(geometry)) {
+            throw new IllegalArgumentException(String.format("Sudoku %dx%d has too many arrangements of columns",
+                    geometry.getLineSize(), geometry.getLineSize()));
+        }
+        this.geometry = geometry;
+        //Without two numbers a sudoku has another solution with them swapped
+        minClues = geometry.getLineSize() == Geometry.STANDARD.getLineSize() ? MIN_CLUES_9X9
+                : geometry.getLineSize() - 1;
+        canonicalizer = new Canonicalizer(geometry);
+        solutions = new LinkedHashMap<String, int[][]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[][]> eldest) {
+                boolean isFull = size() > capacity;
+                if (isFull) {
+                    evictions.incrementAndGet();
+                }
+                return isFull;
+            }
+        };
+    }
+
+    /**
+     * Solves the sudoku in place with the solver unless an equivalent sudoku was solved before. Sudoku which
+     * can't be solved are not cached, the solver reports them every time. Neither are sudoku with too few clues
+     * to have one solution or too symmetric to find their canonical form quickly, they are neither hits nor misses.
+     */
+    public void solve(int[][] sudoku, Solver solver) {
+        CanonicalForm form = isCorrectGrid(sudoku) && countClues(sudoku) >= minClues
+                ? canonicalizer.canonicalize(sudoku) : null;
+        if (form == null) {
+            solver.solve(sudoku);
+            return;
+        }
+        int[][] solution;
+        synchronized (solutions) {
+            solution = solutions.get(form.getKey());
+        }
+        if (solution != null) {
+            hits.incrementAndGet();
+            form.fromCanonical(solution, sudoku);
+            return;
+        }
+        misses.incrementAndGet();
+        solver.solve(sudoku);
+        solution = form.toCanonical(sudoku);
+        synchronized (solutions) {
+            solutions.put(form.getKey(), solution);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int getSize() {
+        synchronized (solutions) {
+            return solutions.size();
+        }
+    }
+
+    public double getHitRate() {
+        long lookups = hits.get() + misses.get();
+        return lookups == 0 ? 0 : (double) hits.get() / lookups;
+    }
+
+    private boolean isCorrectGrid(int[][] sudoku) {
+        if (sudoku == null || sudoku.length != geometry.getLineSize()) {
+            return false;
+        }
+        for (int[] line : sudoku) {
+            if (line == null || line.length != geometry.getLineSize()) {
+                return false;
+            }
+            for (int value : line) {
+                if (value < 0 || value > geometry.getLineSize()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int countClues(int[][] sudoku) {
+        int result = 0;
+        for (int[] line : sudoku) {
+            for (int value : line) {
+                if (value != 0) {
+                    result++;
+                }
+            }
+        }
+        return result;
+    }
+}
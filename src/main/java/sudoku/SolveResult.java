@@ -0,0 +1,21 @@
+package sudoku;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SolveResult {
+
+    private SolveStatus status;
+    //Copy of the sudoku with all numbers found, null when the sudoku is invalid
+    private int[][] solution;
+    //Why the sudoku is invalid or not solved, null when it is solved
+    private String message;
+    //Cells left empty, of the given sudoku when it is invalid and 0 when its size or numbers are wrong
+    private int amountOfEmptyCells;
+
+    public boolean isSolved() {
+        return status == SolveStatus.SOLVED;
+    }
+}
@@ -0,0 +1,124 @@
+package sudoku;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Counters of how sudoku were solved: cells placed and time spent by every logical method and by the search.
+ * Filled only by a solver created with statistics enabled, see {@link Solver#Solver(Geometry, boolean)}.
+ */
+@Getter
+public class SolveStats {
+
+    private static final int AMOUNT_OF_TECHNIQUES = Technique.values().length;
+
+    private long amountOfSudoku;
+    private long placedBySearch;
+    //Nodes of the search tree, every one is a guess rolled back through the trail when it fails
+    private long searchNodes;
+    private long searchNanos;
+    //Units looked at by all logical methods together
+    private long propagationIterations;
+    //Indexed by technique
+    @Getter(AccessLevel.NONE)
+    private final long[] placedCells = new long[AMOUNT_OF_TECHNIQUES];
+    @Getter(AccessLevel.NONE)
+    private final long[] eliminatedCandidates = new long[AMOUNT_OF_TECHNIQUES];
+    @Getter(AccessLevel.NONE)
+    private final long[] passes = new long[AMOUNT_OF_TECHNIQUES];
+    @Getter(AccessLevel.NONE)
+    private final long[] nanos = new long[AMOUNT_OF_TECHNIQUES];
+
+    /**
+     * @return cells filled by the technique
+     */
+    public long getPlacedCells(Technique technique) {
+        return placedCells[technique.ordinal()];
+    }
+
+    /**
+     * @return candidates removed by the technique, techniques which only place numbers remove none
+     */
+    public long getEliminatedCandidates(Technique technique) {
+        return eliminatedCandidates[technique.ordinal()];
+    }
+
+    /**
+     * @return how many times the technique was run, at most once per sudoku
+     */
+    public long getPasses(Technique technique) {
+        return passes[technique.ordinal()];
+    }
+
+    public long getNanos(Technique technique) {
+        return nanos[technique.ordinal()];
+    }
+
+    public void add(SolveStats other) {
+        amountOfSudoku += other.amountOfSudoku;
+        placedBySearch += other.placedBySearch;
+        searchNodes += other.searchNodes;
+        searchNanos += other.searchNanos;
+        propagationIterations += other.propagationIterations;
+        for (int i = 0; i < AMOUNT_OF_TECHNIQUES; i++) {
+            placedCells[i] += other.placedCells[i];
+            eliminatedCandidates[i] += other.eliminatedCandidates[i];
+            passes[i] += other.passes[i];
+            nanos[i] += other.nanos[i];
+        }
+    }
+
+    void reset() {
+        amountOfSudoku = 0;
+        placedBySearch = 0;
+        searchNodes = 0;
+        searchNanos = 0;
+        propagationIterations = 0;
+        Arrays.fill(placedCells, 0);
+        Arrays.fill(eliminatedCandidates, 0);
+        Arrays.fill(passes, 0);
+        Arrays.fill(nanos, 0);
+    }
+
+    void countSudoku() {
+        amountOfSudoku++;
+    }
+
+    void countPlaced(Technique technique) {
+        if (technique == null) {
+            placedBySearch++;
+        } else {
+            placedCells[technique.ordinal()]++;
+        }
+    }
+
+    void countPass(Technique technique) {
+        passes[technique.ordinal()]++;
+    }
+
+    void countIteration(Technique technique, long eliminated, long elapsedNanos) {
+        propagationIterations++;
+        eliminatedCandidates[technique.ordinal()] += eliminated;
+        nanos[technique.ordinal()] += elapsedNanos;
+    }
+
+    void countSearch(long nodes, long elapsedNanos) {
+        searchNodes += nodes;
+        searchNanos += elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(String.format("%d sudoku, %d units looked at", amountOfSudoku,
+                propagationIterations));
+        for (Technique technique : Technique.values()) {
+            result.append(String.format("; %s: %d passes, %d cells, %d candidates, %d ms", technique,
+                    getPasses(technique), getPlacedCells(technique), getEliminatedCandidates(technique),
+                    getNanos(technique) / 1_000_000));
+        }
+        return result.append(String.format("; SEARCH: %d nodes, %d cells, %d ms", searchNodes, placedBySearch,
+                searchNanos / 1_000_000)).toString();
+    }
+}
@@ -0,0 +1,18 @@
+package sudoku;
+
+/**
+ * Outcome of {@link Solver#trySolve}.
+ */
+public enum SolveStatus {
+
+    //Every cell is filled
+    SOLVED,
+    //Logical methods got stuck and search was not allowed, some cells are left empty
+    PARTIAL,
+    //Given numbers are correct, but there is no solution
+    CONTRADICTION,
+    //Wrong size, numbers out of range or given numbers which repeat
+    INVALID,
+    //Solving ran out of its budget before it finished, some cells are left empty
+    TIMEOUT
+}
@@ -1,36 +1,116 @@
 package sudoku;
 
-import com.google.common.primitives.Ints;
 import lombok.extern.log4j.Log4j2;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-
-import static sudoku.Type.COLUMN;
-import static sudoku.Type.ROW;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Log4j2
 public class Solver {
 
-    private static final int LINE_SIZE = 9;
-    private static final int HEIGHT_SQUARE = 3;
     private static final int NUMBER_MIN = 1;
-    private static final int NUMBER_MAX = 9;
-    private static final int MIN_8_DIGIT_SUM = 36;
-    private static final int MAX_8_DIGIT_SUM = 44;
-    private static final int SQUARE_BOUNDARY = 3;
-    private static final int WIDTH_SQUARE = 3;
-    private static final String ARRAY_SIZE_INCORRECT = "Size of two dimensional array should be 9x9, but";
-
+    private static final String ARRAY_SIZE_INCORRECT = "Size of two dimensional array should be %dx%d, but";
+    static final String WRONG_INPUT_DATA = "Wrong input data. Sudoku can't be solved";
+    private static final String VALUES_OUT_OF_RANGE = "Array of values is not in a range of 1...%d";
+    private static final String REPEATED_NUMBERS = "Given numbers repeat in a row, a column or a square";
+    private static final String STUCK = "Logical methods can't fill all cells";
+    private static final String OUT_OF_BUDGET = "Budget ran out before the sudoku was solved";
+    //Singles place everything the small squares and column-rows methods do, and cheaper
+    private static final Set<Technique> DEFAULT_TECHNIQUES = EnumSet.complementOf(
+            EnumSet.of(Technique.SMALL_SQUARES, Technique.COLUMN_ROWS));
+
+    private final Geometry geometry;
+    private final int lineSize;
+    private final int heightSquare;
+    private final int widthSquare;
+    private final int numberMax;
     //Sum of numbers in section to find which number is not exists in a row or a column;
-    private static final int SUM_OF_NUMBERS_TO_MAX_ELEMENT = NUMBER_MAX * (NUMBER_MAX + 1) / 2;
+    private final int sumOfNumbers;
+    //Bounds of a line sum when exactly one number is missing
+    private final int minSumWithoutNumber;
+    private final int maxSumWithoutNumber;
+    private final int amountOfCells;
+    private final int columnUnits;
+    private final int squareUnits;
+    private final int amountOfHorizontalSquares;
+
+    //Numbers of the sudoku being solved, the methods work on it and write it back at the end
+    private final Board board;
+    private final Candidates candidates;
+    //Techniques the solver runs from the cheapest and their strategies
+    private final Technique[] techniques;
+    private final Strategy[] strategies;
+    //Units changed since every technique looked at them, indexed as techniques
+    private final Worklist[] worklists;
+    private final Search search;
+    //Null when statistics are disabled
+    private final SolveStats stats;
+    //Technique which places numbers at the moment, null for the search
+    private Technique currentTechnique;
+    //Budget left for the sudoku being solved, unlimited for methods run alone
+    private long stepsLeft;
+    private long deadline;
+    private boolean overBudget;
+    private final AtomicLong foundSolutions = new AtomicLong();
+    //Workspace of the methods, reused so solving doesn't allocate
+    private final int[] localTable;
+    private final int[] repeatedCells;
+    private final int[] occupiedNumbers;
+
+    public Solver() {
+        this(Geometry.STANDARD);
+    }
+
+    public Solver(Geometry geometry) {
+        this(geometry, false);
+    }
 
-    private int amountOfHorizontalSquares;
-    private int amountOfVerticalSquares;
+    /**
+     * @param collectingStats whether to count placed cells and time of every method, see {@link #getLastStats}
+     */
+    public Solver(Geometry geometry, boolean collectingStats) {
+        this(geometry, collectingStats, DEFAULT_TECHNIQUES);
+    }
+
+    /**
+     * @param techniques logical methods to run, always from the cheapest, whatever they leave is found by search
+     */
+    public Solver(Geometry geometry, boolean collectingStats, Set<Technique> techniques) {
+        this.geometry = geometry;
+        stats = collectingStats ? new SolveStats() : null;
+        lineSize = geometry.getLineSize();
+        heightSquare = geometry.getHeightSquare();
+        widthSquare = geometry.getWidthSquare();
+        numberMax = lineSize;
+        sumOfNumbers = geometry.getSumOfNumbers();
+        minSumWithoutNumber = sumOfNumbers - numberMax;
+        maxSumWithoutNumber = sumOfNumbers - NUMBER_MIN;
+        amountOfCells = geometry.getAmountOfCells();
+        columnUnits = geometry.getColumnUnit(0);
+        squareUnits = geometry.getSquareUnit(0);
+        amountOfHorizontalSquares = geometry.getAmountOfHorizontalSquares();
+        board = new Board(geometry);
+        candidates = new Candidates(geometry);
+        Set<Technique> orderedTechniques = EnumSet.noneOf(Technique.class);
+        orderedTechniques.addAll(techniques);
+        this.techniques = orderedTechniques.toArray(new Technique[0]);
+        strategies = new Strategy[this.techniques.length];
+        worklists = new Worklist[this.techniques.length];
+        for (int i = 0; i < this.techniques.length; i++) {
+            strategies[i] = createStrategy(this.techniques[i]);
+            worklists[i] = new Worklist(geometry.getAmountOfUnits());
+        }
+        search = new Search(geometry);
+        localTable = new int[lineSize];
+        repeatedCells = new int[lineSize];
+        occupiedNumbers = new int[lineSize];
+    }
 
     public static void main(String[] args) {
         int[][] array = {
@@ -46,11 +126,18 @@ public class Solver {
                 {0, 0, 0,   0, 5, 0,   0, 3, 0},
                 {0, 0, 0,   0, 0, 0,   6, 0, 1}};
 
-        new Solver().solve(array);
+        Solver solver = new Solver();
+        solver.solve(array);
+        solver.prettyPrint(array);
+    }
+
+    private void prettyPrint() {
+        int[][] array = new int[lineSize][lineSize];
+        board.store(array);
         prettyPrint(array);
     }
 
-    private static void prettyPrint(int[][] array) {
+    private void prettyPrint(int[][] array) {
         for (int i = 0; i < array.length; i++) {
             int[] innerArray = array[i];
             for (int j = 0; j < innerArray.length; j++) {
@@ -59,12 +146,12 @@ public class Solver {
                     continue;
                 }
                 System.out.print(", ");
-                if ((j + 1) % SQUARE_BOUNDARY == 0) {
+                if ((j + 1) % widthSquare == 0) {
                     System.out.print("  ");
                 }
             }
             System.out.println();
-            if ((i + 1) % SQUARE_BOUNDARY == 0) {
+            if ((i + 1) % heightSquare == 0) {
                 System.out.println();
             }
         }
@@ -73,545 +160,654 @@ public class Solver {
     void solve(int[][] sudoku) {
         checkArraySize(sudoku);
         if (!isCorrectValuesInArray(sudoku)) {
-            System.out.println("Array of values is not in a range of 1...9");
+            System.out.printf(VALUES_OUT_OF_RANGE + "%n", numberMax);
             return;
         }
-        amountOfHorizontalSquares = getAmountHorizontalSquares(sudoku[0]);
-        amountOfVerticalSquares = getAmountVerticalSquares(sudoku);
-
-        smallSquaresMethod(sudoku);
-        if (isSudokuHasEmptyCells(sudoku)) {
-            columnRowsMethod(sudoku);
-        }
-        if (isSudokuHasEmptyCells(sudoku)) {
-            localTablesMethod(sudoku);
+        prepare(sudoku);
+        SolveStatus status = solvePrepared(true, Budget.UNLIMITED);
+        board.store(sudoku);
+        if (status != SolveStatus.SOLVED) {
+            prettyPrint(sudoku);
+            throw new SudokuException(WRONG_INPUT_DATA);
         }
-        checkRepeatingNumbers(sudoku);
     }
 
-    private void checkRepeatingNumbers(int[][] sudoku) {
-        if (isNumbersRepeatForSquares(sudoku) || isNumbersRepeatForLine(sudoku)) {
-            prettyPrint(sudoku);
-            throw new SudokuException("Wrong input data. Sudoku can't be solved");
-        }
+    /**
+     * Solves a copy of the sudoku, the given array is not changed. Wrong sudoku are reported by the status and
+     * the message of the result, nothing is thrown or printed.
+     */
+    public SolveResult trySolve(int[][] sudoku) {
+        return trySolve(sudoku, true, Budget.UNLIMITED);
     }
 
-    private static void checkArraySize(int[][] sudoku) {
-        if (sudoku == null || sudoku.length == 0) {
-            throw new SudokuException(String.format("%s array is empty", ARRAY_SIZE_INCORRECT));
+    /**
+     * The same as {@link #trySolve(int[][])} within the budget. When it runs out the result is
+     * {@link SolveStatus#TIMEOUT} with the numbers found so far.
+     */
+    public SolveResult trySolve(int[][] sudoku, Budget budget) {
+        return trySolve(sudoku, true, budget);
+    }
+
+    /**
+     * The same as {@link #trySolve} without search, so a sudoku which logical methods can't finish is
+     * {@link SolveStatus#PARTIAL}.
+     */
+    public SolveResult trySolveLogically(int[][] sudoku) {
+        return trySolve(sudoku, false, Budget.UNLIMITED);
+    }
+
+    private SolveResult trySolve(int[][] sudoku, boolean searching, Budget budget) {
+        String inputError = getInputError(sudoku);
+        if (inputError != null) {
+            return new SolveResult(SolveStatus.INVALID, null, inputError, 0);
         }
-        if (sudoku.length != LINE_SIZE) {
-            throw new SudokuException(String.format("%s actual outer array size is %d", ARRAY_SIZE_INCORRECT,
-                    sudoku.length));
+        int[][] solution = new int[lineSize][];
+        for (int i = 0; i < lineSize; i++) {
+            solution[i] = sudoku[i].clone();
         }
-        for (int i = 0; i < sudoku.length; i++) {
-            int[] arr = sudoku[i];
-            if (arr == null || arr.length == 0) {
-                throw new SudokuException(String.format("%s line %d is empty", ARRAY_SIZE_INCORRECT, i));
-            }
-            if (arr.length != LINE_SIZE) {
-                throw new SudokuException(String.format("line %d has size %d", i, arr.length));
-            }
+        SolveStatus status = solveInPlace(solution, searching, budget);
+        if (status == SolveStatus.INVALID) {
+            //Rejected before candidates were loaded, they are left from the previous sudoku
+            return new SolveResult(status, null, REPEATED_NUMBERS, countEmptyCells(sudoku));
         }
+        String message = null;
+        if (status == SolveStatus.CONTRADICTION) {
+            message = WRONG_INPUT_DATA;
+        } else if (status == SolveStatus.PARTIAL) {
+            message = STUCK;
+        } else if (status == SolveStatus.TIMEOUT) {
+            message = OUT_OF_BUDGET;
+        }
+        return new SolveResult(status, solution, message, candidates.getAmountOfEmptyCells());
     }
 
-    private static boolean isCorrectValuesInArray(int[][] sudoku) {
+    private static int countEmptyCells(int[][] sudoku) {
+        int result = 0;
         for (int[] line : sudoku) {
-            for (int val : line) {
-                if (val < NUMBER_MIN - 1 || val > NUMBER_MAX) {
-                    return false;
+            for (int number : line) {
+                if (number == 0) {
+                    result++;
                 }
             }
         }
-        return true;
-    }
-
-    private static int getAmountVerticalSquares(int[][] sudoku) {
-        return sudoku.length / HEIGHT_SQUARE;
+        return result;
     }
 
-    private static int getAmountHorizontalSquares(int[] ints) {
-        return ints.length / WIDTH_SQUARE;
+    /**
+     * Solves the sudoku in place without exceptions and output, batch solving uses it so wrong sudoku cost no
+     * more than correct ones. The array keeps numbers found before the solver got stuck or found a contradiction,
+     * and is not changed when the sudoku is invalid.
+     */
+    SolveStatus solveInPlace(int[][] sudoku, boolean searching, Budget budget) {
+        if (getInputError(sudoku) != null) {
+            return SolveStatus.INVALID;
+        }
+        board.load(sudoku);
+        if (board.hasRepeatedNumbers()) {
+            return SolveStatus.INVALID;
+        }
+        prepare();
+        SolveStatus status = solvePrepared(searching, budget);
+        board.store(sudoku);
+        return status;
     }
 
-    private void smallSquaresMethod(int[][] sudoku) {
-        for (int i = 0; i < amountOfVerticalSquares; i++) {
-            for (int j = 0; j < amountOfHorizontalSquares; j++) {
-                int amountFreeCells = getAmountOfFreeCellsInSquare(i, j, sudoku);
-                if (amountFreeCells == 0) {
-                    continue;
-                }
-                for (int k = NUMBER_MIN; k <= NUMBER_MAX; k++) {
-                    boolean isUniqueNumber = isNumberUniqueForSquare(k, i, j, sudoku);
-                    if (isUniqueNumber) {
-                        fillSquareWithNumber(k, i, j, amountFreeCells, sudoku);
-                    }
-                }
-            }
+    /**
+     * The same as {@link #solveInPlace(int[][], boolean, Budget)} for a record of the {@link PackedFormat} at the
+     * offset of the buffer, the sudoku is read from and written to the buffer without other copies.
+     */
+    SolveStatus solveInPlace(ByteBuffer buffer, int offset, boolean searching, Budget budget) {
+        if (!board.load(buffer, offset) || board.hasRepeatedNumbers()) {
+            return SolveStatus.INVALID;
         }
+        prepare();
+        SolveStatus status = solvePrepared(searching, budget);
+        board.store(buffer, offset);
+        return status;
     }
 
-    private void fillSquareWithNumber(int number, int indexSquareVertical,
-                                      int indexSquareHorizontal, int amountFreeCells, int[][] sudoku) {
-        if (amountFreeCells == 1) {
-            fill(number, indexSquareVertical, indexSquareHorizontal, sudoku);
-            smallSquaresMethod(sudoku);
+    private SolveStatus solvePrepared(boolean searching, Budget budget) {
+        if (stats != null) {
+            stats.reset();
+            stats.countSudoku();
+        }
+        stepsLeft = budget.getSteps();
+        deadline = budget.getDeadline(System.nanoTime());
+        //Every pass lets one more expensive technique in, cheaper ones are still run first
+        for (int i = 0; i < techniques.length && isSudokuHasEmptyCells() && !overBudget; i++) {
+            propagate(i);
+        }
+        if (board.hasRepeatedNumbers()) {
+            return SolveStatus.CONTRADICTION;
+        }
+        if (!isSudokuHasEmptyCells()) {
+            return SolveStatus.SOLVED;
         }
-        boolean[][] smallSquareWithPossiblePositionsOfNumber = new boolean[HEIGHT_SQUARE][WIDTH_SQUARE];
-        int amountPossiblePositions = findOutPossiblePositions(number, indexSquareVertical, indexSquareHorizontal,
-                smallSquareWithPossiblePositionsOfNumber, sudoku);
-        if (amountPossiblePositions == 1) {
-            fillWithConfidentPosition(number, indexSquareVertical, indexSquareHorizontal,
-                    smallSquareWithPossiblePositionsOfNumber, sudoku);
-            smallSquaresMethod(sudoku);
+        if (overBudget) {
+            return SolveStatus.TIMEOUT;
         }
-        if (fillNumberInRowAndColumn(sudoku)) {
-            smallSquaresMethod(sudoku);
+        if (!searching) {
+            return SolveStatus.PARTIAL;
         }
+        return searchMethod(budget.getNodes());
     }
 
-    private int getAmountOfFreeCellsInSquare(int indexSquareVertical, int indexSquareHorizontal, int[][] sudoku) {
-        int count = 0;
-        int shiftVertical = getShiftVertical(indexSquareVertical);
-        int shiftHorizontal = getShiftHorizontal(indexSquareHorizontal);
+    /**
+     * Counts solutions of the sudoku without changing it and stops at the limit: limit 2 tells whether the
+     * solution is unique. Every node of the count only places singles, the techniques of the solver are not
+     * run: they remove no candidate of any solution, so they would save nodes but never change the count.
+     *
+     * @return amount of solutions, no more than the limit
+     */
+    public long countSolutions(int[][] sudoku, long limit) {
+        Candidates root = prepareCounting(sudoku, limit);
+        if (root == null) {
+            return 0;
+        }
+        foundSolutions.set(0);
+        countSolutions(root, limit, foundSolutions);
+        return Math.min(foundSolutions.get(), limit);
+    }
 
-        for (int i = 0; i < HEIGHT_SQUARE; i++) {
-            for (int j = 0; j < WIDTH_SQUARE; j++) {
-                if (sudoku[i + shiftVertical][j + shiftHorizontal] == 0) {
-                    count++;
-                }
-            }
+    public boolean hasUniqueSolution(int[][] sudoku) {
+        return countSolutions(sudoku, 2) == 1;
+    }
+
+    /**
+     * Checks the sudoku and loads its candidates for counting.
+     *
+     * @return candidates owned by this solver, or null if given numbers repeat and there is no solution
+     */
+    Candidates prepareCounting(int[][] sudoku, long limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit of solutions should be positive, but was " + limit);
+        }
+        checkArraySize(sudoku);
+        if (!isCorrectValuesInArray(sudoku)) {
+            throw new SudokuException(String.format(VALUES_OUT_OF_RANGE, numberMax));
         }
-        return count;
+        board.load(sudoku);
+        if (board.hasRepeatedNumbers()) {
+            return null;
+        }
+        prepare();
+        return candidates;
     }
 
-    private static int getShiftHorizontal(int indexSquareHorizontal) {
-        return indexSquareHorizontal * WIDTH_SQUARE;
+    /**
+     * Counts solutions of the candidates, which may be a branch of a search shared with other solvers.
+     */
+    void countSolutions(Candidates root, long limit, AtomicLong found) {
+        search.count(root, limit, found);
     }
 
-    private static int getShiftVertical(int indexSquareVertical) {
-        return indexSquareVertical * HEIGHT_SQUARE;
+    /**
+     * @return statistics of the last solved sudoku, null if the solver was created without statistics.
+     * The same instance is reset by the next solve
+     */
+    public SolveStats getLastStats() {
+        return stats;
     }
 
     /**
-     * @return flag of free number for current square
+     * Loads the sudoku into the board and sets up the state the methods below rely on. {@link #solve} calls it,
+     * methods may be run alone after it.
      */
-    private static boolean isNumberUniqueForSquare(int number, int indexSquareVertical,
-                                                   int indexSquareHorizontal, int[][] sudoku) {
-        int shiftVertical = getShiftVertical(indexSquareVertical);
-        int shiftHorizontal = getShiftHorizontal(indexSquareHorizontal);
-        for (int i = 0; i < HEIGHT_SQUARE; i++) {
-            for (int j = 0; j < WIDTH_SQUARE; j++) {
-                if (sudoku[i + shiftVertical][j + shiftHorizontal] == number) {
-                    return false;
-                }
-            }
+    void prepare(int[][] sudoku) {
+        board.load(sudoku);
+        prepare();
+    }
+
+    private void prepare() {
+        stepsLeft = Long.MAX_VALUE;
+        deadline = Budget.NO_DEADLINE;
+        overBudget = false;
+        candidates.load(board);
+        for (Worklist worklist : worklists) {
+            worklist.addAll();
+        }
+    }
+
+    private Strategy createStrategy(Technique technique) {
+        switch (technique) {
+            case SINGLES:
+                return this::applySingles;
+            case SMALL_SQUARES:
+                return this::applySmallSquares;
+            case COLUMN_ROWS:
+                return this::applyColumnRows;
+            case POINTING_PAIRS:
+                return new LockedCandidates(candidates)::applyPointing;
+            case BOX_LINE_REDUCTION:
+                return new LockedCandidates(candidates)::applyBoxLineReduction;
+            case NAKED_PAIRS:
+                return new Subsets(candidates, 2)::applyNaked;
+            case HIDDEN_PAIRS:
+                return new Subsets(candidates, 2)::applyHidden;
+            case NAKED_TRIPLES:
+                return new Subsets(candidates, 3)::applyNaked;
+            case HIDDEN_TRIPLES:
+                return new Subsets(candidates, 3)::applyHidden;
+            case X_WING:
+                return new XWing(candidates)::apply;
+            case LOCAL_TABLES:
+                return this::applyLocalTables;
+            default:
+                throw new IllegalStateException("Unknown technique " + technique);
+        }
+    }
+
+    private void checkRepeatingNumbers() {
+        if (board.hasRepeatedNumbers()) {
+            prettyPrint();
+            throw new SudokuException(WRONG_INPUT_DATA);
         }
-        return true;
     }
 
-    private void columnRowsMethod(int[][] sudoku) {
-        boolean isFoundNumberToFill = findOutToFillColumns(sudoku) | findOutNumberToFillRows(sudoku);
-        if (isFoundNumberToFill) {
-            smallSquaresMethod(sudoku);
+    /**
+     * Last resort when logical methods are stuck: search through the candidates left.
+     *
+     * @return whether the sudoku is solved, has no solution or the search ran out of the budget
+     */
+    private SolveStatus searchMethod(long maxNodes) {
+        long start = stats == null ? 0 : System.nanoTime();
+        Candidates solution = search.solve(candidates, maxNodes, deadline);
+        if (stats != null) {
+            stats.countSearch(search.getAmountOfNodes(), System.nanoTime() - start);
         }
-        if (isSudokuHasEmptyCells(sudoku) && isFoundNumberToFill) {
-            columnRowsMethod(sudoku);
+        if (solution == null) {
+            return search.isOverBudget() ? SolveStatus.TIMEOUT : SolveStatus.CONTRADICTION;
         }
-        if (!isFoundNumberToFill) {
-            checkRepeatingNumbers(sudoku);
+        currentTechnique = null;
+        for (int cell = 0; cell < amountOfCells; cell++) {
+            if (board.get(cell) == 0) {
+                place(cell, solution.getNumber(cell));
+            }
         }
+        return SolveStatus.SOLVED;
     }
 
-    private boolean findOutToFillColumns(int[][] sudoku) {
-        boolean isColumnFilled = false;
+    private void checkArraySize(int[][] sudoku) {
+        String sizeError = getSizeError(sudoku);
+        if (sizeError != null) {
+            throw new SudokuException(sizeError);
+        }
+    }
+
+    /**
+     * @return description of what is wrong with the size or the values of the sudoku, null if nothing is
+     */
+    private String getInputError(int[][] sudoku) {
+        String sizeError = getSizeError(sudoku);
+        if (sizeError != null) {
+            return sizeError;
+        }
+        return isCorrectValuesInArray(sudoku) ? null : String.format(VALUES_OUT_OF_RANGE, numberMax);
+    }
+
+    private String getSizeError(int[][] sudoku) {
+        if (sudoku == null || sudoku.length == 0) {
+            return String.format("%s array is empty", getArraySizeIncorrect());
+        }
+        if (sudoku.length != lineSize) {
+            return String.format("%s actual outer array size is %d", getArraySizeIncorrect(), sudoku.length);
+        }
         for (int i = 0; i < sudoku.length; i++) {
-            int amountOfFreeNumbersInColumn = getAmountOfFreeNumbersInLine(true, sudoku, i);
-            if (amountOfFreeNumbersInColumn == 0) {
-                continue;
-            }
-            int[] numbersToCheckInColumn = new int[amountOfFreeNumbersInColumn];
-            if (isFillNumbersToCheckInLine(true, sudoku, i, numbersToCheckInColumn)) {
-                return false;
+            int[] arr = sudoku[i];
+            if (arr == null || arr.length == 0) {
+                return String.format("%s line %d is empty", getArraySizeIncorrect(), i);
             }
-            if (checkOutToFillNumbersInCurrentLine(true, i, numbersToCheckInColumn, sudoku)) {
-                isColumnFilled = true;
+            if (arr.length != lineSize) {
+                return String.format("line %d has size %d", i, arr.length);
             }
         }
-        return isColumnFilled;
+        return null;
     }
 
-    private boolean isFillNumbersToCheckInLine(boolean isColumn, int[][] sudoku, int outerIndex,
-                                               int[] numbersToCheckInColumn) {
-        int numbersToCheckInColumnIdx = 0;
-        for (int k = NUMBER_MIN; k <= NUMBER_MAX; k++) {
-            for (int j = 0; j < sudoku.length; j++) {
-                if (isColumn ? sudoku[j][outerIndex] == k : sudoku[outerIndex][j] == k) {
-                    break;
-                }
-                if (j == LINE_SIZE - 1) {
-                    if (numbersToCheckInColumnIdx >= numbersToCheckInColumn.length) {
-                        return true;
-                    }
-                    numbersToCheckInColumn[numbersToCheckInColumnIdx++] = k;
+    private String getArraySizeIncorrect() {
+        return String.format(ARRAY_SIZE_INCORRECT, lineSize, lineSize);
+    }
+
+    private boolean isCorrectValuesInArray(int[][] sudoku) {
+        for (int[] line : sudoku) {
+            for (int val : line) {
+                if (val < NUMBER_MIN - 1 || val > numberMax) {
+                    return false;
                 }
             }
         }
-        return false;
+        return true;
     }
 
-    private int getAmountOfFreeNumbersInLine(boolean isColumn, int[][] sudoku, int outerIndex) {
-        int amountOfFreeNumbersInColumn = 0;
-        for (int j = 0; j < sudoku[outerIndex].length; j++) {
-            if (isColumn ? sudoku[j][outerIndex] == 0 : sudoku[outerIndex][j] == 0) {
-                amountOfFreeNumbersInColumn++;
-            }
+    /**
+     * Runs the method on the sudoku given to {@link #prepare} and writes the board back into it.
+     */
+    void smallSquaresMethod(int[][] sudoku) {
+        smallSquaresMethod();
+        board.store(sudoku);
+    }
+
+    void columnRowsMethod(int[][] sudoku) {
+        try {
+            columnRowsMethod();
+        } finally {
+            board.store(sudoku);
         }
-        return amountOfFreeNumbersInColumn;
     }
 
-    private boolean checkOutToFillNumbersInCurrentLine(boolean isColumn, int outerIndex, int[] numbersToCheck,
-                                                       int[][] sudoku) {
-        boolean isColumnFilled = false;
-        Map<Integer, Set<Integer>> occupiedNumbersForChars = new HashMap<>();
-        for (int number : numbersToCheck) {
-            int countOfAvailablePositions = 0;
-            int possiblePosition = -1;
-            for (int i = 0; i < sudoku.length; i++) {
-                if (isColumn ? sudoku[i][outerIndex] == 0 : sudoku[outerIndex][i] == 0) {
-                    if (isColumn ? isNumberBusyForSquare(number, i, outerIndex, sudoku)
-                            : isNumberBusyForSquare(number, outerIndex, i, sudoku)) {
-                        occupiedNumbersForChars.putIfAbsent(i, new HashSet<>());
-                        occupiedNumbersForChars.get(i).add(number);
-                        continue;
-                    }
-                    for (int j = 0; j < sudoku.length; j++) {
-                        if (isColumn ? sudoku[i][j] == number : sudoku[j][i] == number) {
-                            occupiedNumbersForChars.putIfAbsent(i, new HashSet<>());
-                            occupiedNumbersForChars.get(i).add(number);
-                            break;
-                        }
-                        if (j == sudoku.length - 1) {
-                            countOfAvailablePositions++;
-                            possiblePosition = i;
-                        }
-                    }
-                }
-            }
-            if (countOfAvailablePositions == 1) {
-                if (isColumn) {
-                    sudoku[possiblePosition][outerIndex] = number;
-                } else {
-                    sudoku[outerIndex][possiblePosition] = number;
-                }
-                isColumnFilled = true;
-            }
+    void localTablesMethod(int[][] sudoku) {
+        try {
+            localTablesMethod();
+        } finally {
+            board.store(sudoku);
         }
-        Item item = new Item(outerIndex, isColumn);
-        isColumnFilled = isColumnFilled | fillUnoccupiedNumber(item, numbersToCheck, sudoku, occupiedNumbersForChars);
-        return isColumnFilled;
     }
 
-    private boolean findOutNumberToFillRows(int[][] sudoku) {
-        boolean isRowFilled = false;
-        for (int i = 0; i < sudoku.length; i++) {
-            int amountOfFreeNumbersInRow = getAmountOfFreeNumbersInLine(false, sudoku, i);
-            if (amountOfFreeNumbersInRow == 0) {
+    private void smallSquaresMethod() {
+        propagate(getLastIndexUpTo(Technique.SMALL_SQUARES));
+    }
+
+    private void columnRowsMethod() {
+        propagate(getLastIndexUpTo(Technique.COLUMN_ROWS));
+        checkRepeatingNumbers();
+    }
+
+    private void localTablesMethod() {
+        propagate(getLastIndexUpTo(Technique.LOCAL_TABLES));
+        checkRepeatingNumbers();
+    }
+
+    /**
+     * @return index of the most expensive technique of the solver which is not more expensive than the given one
+     */
+    private int getLastIndexUpTo(Technique technique) {
+        int result = -1;
+        while (result + 1 < techniques.length && techniques[result + 1].compareTo(technique) <= 0) {
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * Looks at changed units one by one until no technique up to the given one has a unit to look at.
+     * Cheaper techniques always go first, an expensive one gets a unit only when all cheaper ones are done.
+     */
+    private void propagate(int mostExpensive) {
+        if (mostExpensive < 0) {
+            return;
+        }
+        if (stats != null) {
+            stats.countPass(techniques[mostExpensive]);
+        }
+        int techniqueIndex = 0;
+        while (techniqueIndex <= mostExpensive) {
+            int unit = worklists[techniqueIndex].poll();
+            if (unit < 0) {
+                techniqueIndex++;
                 continue;
             }
-            int[] numbersToCheckInRow = new int[amountOfFreeNumbersInRow];
-            if (isFillNumbersToCheckInLine(false, sudoku, i, numbersToCheckInRow)) {
-                return false;
+            currentTechnique = techniques[techniqueIndex];
+            long start = stats == null ? 0 : System.nanoTime();
+            long eliminated = candidates.getAmountOfEliminated();
+            strategies[techniqueIndex].apply(unit);
+            if (stats != null) {
+                stats.countIteration(currentTechnique, candidates.getAmountOfEliminated() - eliminated,
+                        System.nanoTime() - start);
+            }
+            for (int changed = candidates.pollChangedUnit(); changed >= 0; changed = candidates.pollChangedUnit()) {
+                for (Worklist worklist : worklists) {
+                    worklist.add(changed);
+                }
             }
-            if (checkOutToFillNumbersInCurrentLine(false, i, numbersToCheckInRow, sudoku)) {
-                isRowFilled = true;
+            techniqueIndex = 0;
+            stepsLeft--;
+            if (stepsLeft <= 0 || (stepsLeft & Budget.CLOCK_INTERVAL_MASK) == 0 && Budget.isPast(deadline)) {
+                overBudget = true;
+                return;
             }
         }
-        return isRowFilled;
     }
 
-    private boolean fillUnoccupiedNumber(Item item, int[] numbersToCheckInRow, int[][] sudoku,
-                                         Map<Integer, Set<Integer>> occupiedNumbersForChars) {
-        boolean isFilled = false;
-        for (Map.Entry<Integer, Set<Integer>> entry : occupiedNumbersForChars.entrySet()) {
-            int index = entry.getKey();
-            Set<Integer> numbers = entry.getValue();
-            if (numbers.size() == numbersToCheckInRow.length - 1) {
-                for (int possibleNumber : numbersToCheckInRow) {
-                    if (!numbers.contains(possibleNumber)) {
-                        if (item.isColumn()) {
-                            sudoku[index][item.getIndex()] = possibleNumber;
-                        } else {
-                            sudoku[item.getIndex()][index] = possibleNumber;
-                        }
-                        isFilled = true;
-                    }
+    /**
+     * Places numbers of cells with a single candidate and numbers which have a single cell in the unit.
+     */
+    private void applySingles(int unit) {
+        int[] unitCells = geometry.getUnitCells(unit);
+        for (int cell : unitCells) {
+            int mask = candidates.get(cell);
+            if (Integer.bitCount(mask) == 1) {
+                place(cell, Candidates.numberOf(mask));
+            }
+        }
+        for (int numbers = candidates.getHiddenSingles(unit); numbers != 0; numbers &= numbers - 1) {
+            int bit = numbers & -numbers;
+            for (int cell : unitCells) {
+                if ((candidates.get(cell) & bit) != 0) {
+                    place(cell, Candidates.numberOf(bit));
+                    break;
                 }
             }
         }
-        return isFilled;
     }
 
-    private void localTablesMethod(int[][] sudoku) {
-        boolean isFoundNumberToFill = columnLocalTable(sudoku) | rowLocalTable(sudoku) | squareLocalTable(sudoku);
-        if (isFoundNumberToFill) {
-            columnRowsMethod(sudoku);
-        }
-        if (isSudokuHasEmptyCells(sudoku) && isFoundNumberToFill) {
-            localTablesMethod(sudoku);
-        }
-        if (!isFoundNumberToFill) {
-            checkRepeatingNumbers(sudoku);
+    private void applySmallSquares(int unit) {
+        if (unit >= squareUnits) {
+            fillSquare(unit);
+        } else {
+            fillNumberInLine(unit);
         }
     }
 
-    private boolean rowLocalTable(int[][] sudoku) {
-        boolean result = false;
-        for (int i = 0; i < sudoku.length; i++) {
-            int[] row = sudoku[i];
-            Map<Integer, Set<Integer>> rowTable = getRowLocalTable(sudoku, i, row);
-            boolean reduced = reduceLocalTable(rowTable);
-            if (reduced) {
-                result = result | fillFromLocalTable(ROW, sudoku, i, rowTable);
+    private void fillSquare(int unit) {
+        int[] unitCells = geometry.getUnitCells(unit);
+        for (int k = NUMBER_MIN; k <= numberMax; k++) {
+            int amountFreeCells = board.getAmountOfEmptyCells(unit);
+            if (amountFreeCells == 0) {
+                return;
+            }
+            if (board.contains(unit, k)) {
+                continue;
+            }
+            if (amountFreeCells == 1) {
+                fill(k, unitCells);
+                continue;
+            }
+            int possiblePositions = findOutPossiblePositions(k, unitCells);
+            if (Integer.bitCount(possiblePositions) == 1) {
+                place(unitCells[Integer.numberOfTrailingZeros(possiblePositions)], k);
             }
         }
-        return result;
     }
 
-    private boolean columnLocalTable(int[][] sudoku) {
-        boolean result = false;
-        for (int i = 0; i < sudoku.length; i++) {
-            int[] column = getColumn(i, sudoku);
-            Map<Integer, Set<Integer>> columnTable = getColumnLocalTable(sudoku, i, column);
-            boolean reduced = reduceLocalTable(columnTable);
-            if (reduced) {
-                result = result | fillFromLocalTable(COLUMN, sudoku, i, columnTable);
+    /**
+     * @return positions inside the square where the number may be, bit {@code i} for the cell i of the square
+     */
+    private int findOutPossiblePositions(int number, int[] squareCells) {
+        int positions = 0;
+        for (int i = 0; i < squareCells.length; i++) {
+            int cell = squareCells[i];
+            if (board.get(cell) == 0 && !board.contains(geometry.getRowIndex(cell), number)
+                    && !board.contains(geometry.getColumnUnit(geometry.getColumnIndex(cell)), number)) {
+                positions |= 1 << i;
             }
         }
-        return result;
+        return positions;
     }
 
-    private boolean squareLocalTable(int[][] sudoku) {
-        boolean result = false;
-        for (int i = 0; i < sudoku.length; i++) {
-            Cell squarePosition = getSquarePositionFromNumber(i);
-            Set<Integer> filledNumbers = getSquareFilledNumbers(squarePosition, sudoku);
-            Map<Integer, Set<Integer>> table = getSquareLocalTable(sudoku, squarePosition, filledNumbers);
-            boolean reduced = reduceLocalTable(table);
-            if (reduced) {
-                result = result | fillFromSquareLocalTable(sudoku, squarePosition, table);
+    private void fill(int number, int[] squareCells) {
+        for (int cell : squareCells) {
+            if (board.get(cell) == 0) {
+                place(cell, number);
+                return;
             }
         }
-        return result;
     }
 
-    private boolean fillFromSquareLocalTable(int[][] sudoku, Cell squarePosition, Map<Integer, Set<Integer>> table) {
-        for (Map.Entry<Integer, Set<Integer>> entry : table.entrySet()) {
-            Set<Integer> row = entry.getValue();
-            if (row.size() == 1) {
-                Cell cellPosition = getSquarePositionFromNumber(entry.getKey());
-                int shiftVertical = getShiftVertical(squarePosition.getIndexRow());
-                int shiftHorizontal = getShiftHorizontal(squarePosition.getIndexColumn());
-                int indexRow = shiftVertical + cellPosition.getIndexRow();
-                int indexColumn = shiftHorizontal + cellPosition.getIndexColumn();
-                sudoku[indexRow][indexColumn] = row.iterator().next();
-                return true;
-            }
+    private void applyColumnRows(int unit) {
+        if (unit >= squareUnits) {
+            return;
         }
-        return false;
+        int amountOfFreeNumbers = board.getAmountOfEmptyCells(unit);
+        if (amountOfFreeNumbers == 0) {
+            return;
+        }
+        int numbersToCheck = geometry.getAllNumbers() & ~board.getUnitNumbers(unit);
+        //More missing numbers than empty cells means repeated numbers, which are reported after propagation
+        if (Integer.bitCount(numbersToCheck) > amountOfFreeNumbers) {
+            return;
+        }
+        checkOutToFillNumbersInCurrentLine(unit, numbersToCheck);
     }
 
-    Map<Integer, Set<Integer>> getSquareLocalTable(int[][] sudoku, Cell squarePosition,
-                                                           Set<Integer> filledSquareNumbers) {
-        int shiftVertical = getShiftVertical(squarePosition.getIndexRow());
-        int shiftHorizontal = getShiftHorizontal(squarePosition.getIndexColumn());
-        Map<Integer, Set<Integer>> table = new HashMap<>();
-        for (int i = 0; i < HEIGHT_SQUARE; i++) {
-            for (int j = 0; j < WIDTH_SQUARE; j++) {
-                if (sudoku[i + shiftVertical][j + shiftHorizontal] == 0) {
-                    int[] column = getColumn(j + shiftHorizontal, sudoku);
-                    Set<Integer> numbersColumn = getKnownNumbersFromArray(column);
-                    Set<Integer> numbersRow = getKnownNumbersFromArray(sudoku[i + shiftVertical]);
-                    for (int k = NUMBER_MIN; k <= NUMBER_MAX; k++) {
-                        if (containsNumberInCollections(k, filledSquareNumbers, numbersColumn, numbersRow)) {
-                            continue;
-                        }
-                        int positionNumber = getNumberFromSquarePosition(i, j);
-                        table.putIfAbsent(positionNumber, new HashSet<>());
-                        table.get(positionNumber).add(k);
-                    }
+    /**
+     * Places a missing number which fits only one empty cell of the line, then fills cells where all missing
+     * numbers but one are occupied by the crossing line or the square.
+     */
+    private boolean checkOutToFillNumbersInCurrentLine(int unit, int numbersToCheck) {
+        boolean isColumn = unit >= columnUnits;
+        int[] lineCells = geometry.getUnitCells(unit);
+        boolean isColumnFilled = false;
+        //Missing numbers which can't be placed into a cell of the line, indexed by position in the line
+        Arrays.fill(occupiedNumbers, 0);
+        for (int numbers = numbersToCheck; numbers != 0; numbers &= numbers - 1) {
+            int number = Candidates.numberOf(numbers);
+            int countOfAvailablePositions = 0;
+            int possiblePosition = -1;
+            for (int i = 0; i < lineCells.length; i++) {
+                int cell = lineCells[i];
+                if (board.get(cell) != 0) {
+                    continue;
+                }
+                int crossingLine = isColumn ? geometry.getRowIndex(cell)
+                        : geometry.getColumnUnit(geometry.getColumnIndex(cell));
+                if (board.contains(geometry.getSquareUnit(geometry.getSquareIndex(cell)), number)
+                        || board.contains(crossingLine, number)) {
+                    occupiedNumbers[i] |= Candidates.mask(number);
+                } else {
+                    countOfAvailablePositions++;
+                    possiblePosition = i;
                 }
             }
+            if (countOfAvailablePositions == 1) {
+                place(lineCells[possiblePosition], number);
+                isColumnFilled = true;
+            }
         }
-        return table;
-    }
-
-    private int getNumberFromSquarePosition(int outerIndex, int innerIndex) {
-        return outerIndex * HEIGHT_SQUARE + innerIndex;
+        isColumnFilled = isColumnFilled | fillUnoccupiedNumber(lineCells, numbersToCheck);
+        return isColumnFilled;
     }
 
-    @SafeVarargs
-    private final boolean containsNumberInCollections(int number, Collection<Integer>... storages) {
-        for (Collection<Integer> storage : storages) {
-            if (storage.contains(number)) {
-                return true;
+    private boolean fillUnoccupiedNumber(int[] lineCells, int numbersToCheck) {
+        boolean isFilled = false;
+        for (int index = 0; index < occupiedNumbers.length; index++) {
+            int numbers = occupiedNumbers[index];
+            if (numbers != 0 && Integer.bitCount(numbers) == Integer.bitCount(numbersToCheck) - 1) {
+                place(lineCells[index], Candidates.numberOf(numbersToCheck & ~numbers));
+                isFilled = true;
             }
         }
-        return false;
+        return isFilled;
     }
 
-    private static Cell getSquarePositionFromNumber(int number) {
-        return new Cell(number / HEIGHT_SQUARE, number % WIDTH_SQUARE);
+    /**
+     * Local table of a unit is indexed by position of a cell inside the unit: a row left to right, a column
+     * top down, a square row by row.
+     */
+    private void applyLocalTables(int unit) {
+        fillLocalTable(unit, localTable);
+        if (reduceLocalTable(localTable)) {
+            fillFromLocalTable(unit, localTable);
+        }
     }
 
-    private boolean fillFromLocalTable(Type type, int[][] sudoku, int index, Map<Integer, Set<Integer>> table) {
-        for (Map.Entry<Integer, Set<Integer>> entry : table.entrySet()) {
-            Integer tableIndex = entry.getKey();
-            Set<Integer> row = entry.getValue();
-            if (row.size() == 1) {
-                if (type.equals(COLUMN)) {
-                    sudoku[tableIndex][index] = row.iterator().next();
-                } else {
-                    sudoku[index][tableIndex] = row.iterator().next();
-                }
+    private boolean fillFromLocalTable(int unit, int[] table) {
+        int[] unitCells = geometry.getUnitCells(unit);
+        for (int i = 0; i < table.length; i++) {
+            if (Integer.bitCount(table[i]) == 1) {
+                place(unitCells[i], Candidates.numberOf(table[i]));
                 return true;
             }
         }
         return false;
     }
 
-    private boolean reduceLocalTable(Map<Integer, Set<Integer>> table) {
-        boolean result = false;
-        Map<Integer, Set<Integer>> repeatedRows = getRepeatedTableRows(table);
+    Map<Integer, Set<Integer>> getSquareLocalTable(int[][] sudoku, Cell squarePosition,
+                                                           Set<Integer> filledSquareNumbers) {
+        prepare(sudoku);
+        int[] table = new int[lineSize];
+        fillLocalTable(squareUnits + squarePosition.getIndexRow() * amountOfHorizontalSquares
+                + squarePosition.getIndexColumn(), table);
+        return toLocalTableMap(table, filledSquareNumbers);
+    }
 
-        for (Map.Entry<Integer, Set<Integer>> entry : table.entrySet()) {
-            Integer indexRow = entry.getKey();
-            Set<Integer> row = entry.getValue();
-            Set<Integer> repeatedRowsIndexes = repeatedRows.get(indexRow);
-            if (row.size() != repeatedRowsIndexes.size()) {
-                continue;
-            }
-            for (Map.Entry<Integer, Set<Integer>> innerEntry : table.entrySet()) {
-                Integer innerRowIndex = innerEntry.getKey();
-                if (!repeatedRowsIndexes.contains(innerRowIndex)) {
-                    Set<Integer> innerRow = table.get(innerRowIndex);
-                    for (Integer number : row) {
-                        innerRow.remove(number);
-                        result = true;
-                    }
-                }
-            }
+    private void fillLocalTable(int unit, int[] table) {
+        int[] unitCells = geometry.getUnitCells(unit);
+        for (int i = 0; i < table.length; i++) {
+            table[i] = candidates.get(unitCells[i]);
         }
-        return result;
     }
 
-    private Map<Integer, Set<Integer>> getRepeatedTableRows(Map<Integer, Set<Integer>> table) {
-        Map<Integer, Set<Integer>> repeatedRows = new HashMap<>();
-        for (Map.Entry<Integer, Set<Integer>> entry : table.entrySet()) {
-            Integer indexRow = entry.getKey();
-            Set<Integer> row = entry.getValue();
-            for (Map.Entry<Integer, Set<Integer>> innerEntry : table.entrySet()) {
-                Set<Integer> innerRow = innerEntry.getValue();
-                if (row.equals(innerRow)) {
-                    repeatedRows.putIfAbsent(indexRow, new HashSet<>());
-
-                    Integer innerIndexRow = innerEntry.getKey();
-                    repeatedRows.get(indexRow).add(innerIndexRow);
+    /**
+     * Finds groups of cells which have the same candidates and as many cells as candidates. Numbers of such
+     * a group can't be placed anywhere else in the line or square, so they are removed from the other cells.
+     */
+    private boolean reduceLocalTable(int[] table) {
+        boolean result = false;
+        int presentCells = 0;
+        Arrays.fill(repeatedCells, 0);
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] == 0) {
+                continue;
+            }
+            presentCells |= 1 << i;
+            for (int j = 0; j < table.length; j++) {
+                if (table[i] == table[j]) {
+                    repeatedCells[i] |= 1 << j;
                 }
             }
         }
-        return repeatedRows;
-    }
 
-    private Map<Cell, Set<Integer>> getSquaresFilledNumbers(boolean isColumn, int index, int[][] sudoku) {
-        Map<Cell, Set<Integer>> squaresKnownNumbers = new HashMap<>();
-        int[] prevSquareIndexes = null;
-        Set<Integer> prevSquareKnownNumbers = null;
-        for (int i = 0; i < sudoku.length; i++) {
-            int[] squareIndexes = isColumn ? findOutSquareFromIndexes(i, index) : findOutSquareFromIndexes(index, i);
-            Cell cell = getCell(isColumn, index, i);
-            if (Arrays.equals(squareIndexes, prevSquareIndexes)) {
-                squaresKnownNumbers.put(cell, prevSquareKnownNumbers);
-            } else {
-                Set<Integer> squareKnownNumbers = getSquareFilledNumbers(new Cell(squareIndexes[0], squareIndexes[1]),
-                        sudoku);
-                squaresKnownNumbers.put(cell, squareKnownNumbers);
-                prevSquareIndexes = squareIndexes;
-                prevSquareKnownNumbers = squareKnownNumbers;
+        for (int i = 0; i < table.length; i++) {
+            int row = table[i];
+            if (row == 0 || Integer.bitCount(row) != Integer.bitCount(repeatedCells[i])) {
+                continue;
             }
-        }
-        return squaresKnownNumbers;
-    }
-
-    private Set<Integer> getSquareFilledNumbers(Cell squarePosition, int[][] sudoku) {
-        Set<Integer> squareKnownNumbers = new HashSet<>();
-        int shiftVertical = getShiftVertical(squarePosition.getIndexRow());
-        int shiftHorizontal = getShiftHorizontal(squarePosition.getIndexColumn());
-        for (int i = 0; i < HEIGHT_SQUARE; i++) {
-            for (int j = 0; j < WIDTH_SQUARE; j++) {
-                if (sudoku[i + shiftVertical][j + shiftHorizontal] != 0) {
-                    squareKnownNumbers.add(sudoku[i + shiftVertical][j + shiftHorizontal]);
+            int otherCells = presentCells & ~repeatedCells[i];
+            for (int j = 0; j < table.length; j++) {
+                if ((otherCells & 1 << j) != 0) {
+                    table[j] &= ~row;
+                    result = true;
                 }
             }
         }
-        return squareKnownNumbers;
+        return result;
     }
 
     Map<Integer, Set<Integer>> getColumnLocalTable(int[][] sudoku, int columnIndex, int[] array) {
-        int[] lineUnknownNumbers = getUnknownNumbersFromLine(array);
-        return getLocalTable(true, sudoku, columnIndex, lineUnknownNumbers);
+        prepare(sudoku);
+        int[] table = new int[lineSize];
+        fillLocalTable(columnUnits + columnIndex, table);
+        return toLocalTableMap(table, getKnownNumbersFromArray(array));
     }
 
     Map<Integer, Set<Integer>> getRowLocalTable(int[][] sudoku, int rowIndex, int[] array) {
-        int[] lineUnknownNumbers = getUnknownNumbersFromLine(array);
-        return getLocalTable(false, sudoku, rowIndex, lineUnknownNumbers);
-    }
-
-    private Map<Integer, Set<Integer>> getLocalTable(boolean isColumn, int[][] sudoku, int outerIndex,
-                                                     int[] lineUnknownNumbers) {
-        Map<Integer, Set<Integer>> table = new HashMap<>();
-        Map<Cell, Set<Integer>> squareKnownNumbers = getSquaresFilledNumbers(isColumn, outerIndex, sudoku);
-        for (int j = 0; j < sudoku.length; j++) {
-            for (int unknownNumber : lineUnknownNumbers) {
-                Cell cell = getCell(isColumn, outerIndex, j);
-                if (getValueFromIndexes(isColumn, outerIndex, j, sudoku) == 0 &&
-                        !squareKnownNumbers.get(cell).contains(unknownNumber)) {
-                    for (int k = 0; k < sudoku[outerIndex].length; k++) {
-                        if (getValueFromIndexes(!isColumn, j, k, sudoku) == unknownNumber) {
-                            break;
-                        }
-                        if (k == sudoku[outerIndex].length - 1) {
-                            table.putIfAbsent(j, new HashSet<>());
-                            table.get(j).add(unknownNumber);
-                        }
-                    }
+        prepare(sudoku);
+        int[] table = new int[lineSize];
+        fillLocalTable(rowIndex, table);
+        return toLocalTableMap(table, getKnownNumbersFromArray(array));
+    }
+
+    private Map<Integer, Set<Integer>> toLocalTableMap(int[] table, Set<Integer> knownNumbers) {
+        Map<Integer, Set<Integer>> result = new HashMap<>();
+        for (int i = 0; i < table.length; i++) {
+            for (int number = NUMBER_MIN; number <= numberMax; number++) {
+                if ((table[i] & Candidates.mask(number)) != 0 && !knownNumbers.contains(number)) {
+                    result.putIfAbsent(i, new HashSet<>());
+                    result.get(i).add(number);
                 }
             }
         }
-        return table;
-    }
-
-    private int getValueFromIndexes(boolean isColumn, int outerIndex, int innerIndex, int[][] sudoku) {
-        return isColumn ? sudoku[innerIndex][outerIndex] : sudoku[outerIndex][innerIndex];
-    }
-
-    private Cell getCell(boolean isColumn, int index, int j) {
-        return isColumn ? new Cell(j, index) : new Cell(index, j);
-    }
-
-    private int[] getUnknownNumbersFromLine(int[] array) {
-        Set<Integer> unknownNumbers = new HashSet<>();
-        for (int i = NUMBER_MIN; i <= NUMBER_MAX; i++) {
-            for (int j = 0; j < array.length; j++) {
-                if (i == array[j]) {
-                    break;
-                }
-                if (j == array.length - 1) {
-                    unknownNumbers.add(i);
-                }
-            }
-        }
-        return Ints.toArray(unknownNumbers);
+        return result;
     }
 
     private Set<Integer> getKnownNumbersFromArray(int[] array) {
@@ -632,179 +828,49 @@ public class Solver {
         return columnValues;
     }
 
-    private boolean isNumberBusyForSquare(int number, int indexRow, int indexColumn, int[][] sudoku) {
-        int[] indexesSquare = findOutSquareFromIndexes(indexRow, indexColumn);
-        return !isNumberUniqueForSquare(number, indexesSquare[0], indexesSquare[1], sudoku);
-    }
-
-    private int[] findOutSquareFromIndexes(int indexRow, int indexColumn) {
-        int[] indexesSquare = new int[2];
-        indexesSquare[0] = indexRow / HEIGHT_SQUARE;
-        indexesSquare[1] = indexColumn / WIDTH_SQUARE;
-        return indexesSquare;
+    private void place(int cell, int number) {
+        if (stats != null && board.get(cell) == 0) {
+            stats.countPlaced(currentTechnique);
+        }
+        board.set(cell, number);
+        candidates.place(cell, number);
     }
 
     boolean fillNumberInRowAndColumn(int[][] sudoku) {
+        prepare(sudoku);
         boolean isFilledWithNewNumber = false;
-        for (int i = 0; i < sudoku.length; i++) {
-            boolean isOneElementInRowEmpty = false;
-            boolean isOneElementInColumnEmpty = false;
-            int rowIndexEmptyElement = -1;
-            int columnIndexEmptyElement = -1;
-            int sumOfRowElements = 0;
-            int sumOfColumnElements = 0;
-            for (int j = 0; j < sudoku[i].length; j++) {
-                if (sudoku[i][j] == 0 && !isOneElementInRowEmpty) {
-                    isOneElementInRowEmpty = true;
-                    rowIndexEmptyElement = j;
-                } else if (sudoku[i][j] == 0 && isOneElementInRowEmpty) {
-                    isOneElementInRowEmpty = false;
-                    break;
-                }
-                sumOfRowElements += sudoku[i][j];
-            }
-            for (int j = 0; j < sudoku[i].length; j++) {
-                if (sudoku[j][i] == 0 && !isOneElementInColumnEmpty) {
-                    isOneElementInColumnEmpty = true;
-                    columnIndexEmptyElement = j;
-                } else if (sudoku[j][i] == 0 && isOneElementInColumnEmpty) {
-                    isOneElementInColumnEmpty = false;
-                    break;
-                }
-                sumOfColumnElements += sudoku[j][i];
-            }
-            if (isOneElementInRowEmpty && sumOfRowElements >= MIN_8_DIGIT_SUM && sumOfRowElements <= MAX_8_DIGIT_SUM) {
-                int unknownNumber = SUM_OF_NUMBERS_TO_MAX_ELEMENT - sumOfRowElements;
-                sudoku[i][rowIndexEmptyElement] = unknownNumber;
-                isFilledWithNewNumber = true;
-            }
-            if (isOneElementInColumnEmpty && sumOfColumnElements >= MIN_8_DIGIT_SUM
-                    && sumOfColumnElements <= MAX_8_DIGIT_SUM) {
-                int unknownNumber = SUM_OF_NUMBERS_TO_MAX_ELEMENT - sumOfColumnElements;
-                sudoku[columnIndexEmptyElement][i] = unknownNumber;
-                isFilledWithNewNumber = true;
-            }
+        for (int i = 0; i < lineSize; i++) {
+            isFilledWithNewNumber = fillNumberInLine(i) | isFilledWithNewNumber;
+            isFilledWithNewNumber = fillNumberInLine(columnUnits + i) | isFilledWithNewNumber;
         }
+        board.store(sudoku);
         return isFilledWithNewNumber;
     }
 
-    private boolean isSudokuHasEmptyCells(int[][] sudoku) {
-        for (int[] innerArray : sudoku) {
-            for (int value : innerArray) {
-                if (value == 0) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    private boolean isNumbersRepeatForLine(int[][] sudoku) {
-        for (int i = 0; i < sudoku.length; i++) {
-            for (int j = 0; j < sudoku[i].length; j++) {
-                int val = sudoku[i][j];
-                for (int k = j + 1; k < sudoku[i].length; k++) {
-                    if (val != 0 && val == sudoku[i][k]) {
-                        return true;
-                    }
-                }
-                for (int k = i + 1; k < sudoku.length; k++) {
-                    if (val != 0 && val == sudoku[k][j]) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
-    private boolean isNumbersRepeatForSquares(int[][] sudoku) {
-        for (int m = 0; m < amountOfVerticalSquares; m++) {
-            int shiftVertical = getShiftVertical(m);
-            for (int n = 0; n < amountOfHorizontalSquares; n++) {
-                int shiftHorizontal = getShiftHorizontal(n);
-                for (int i = 0; i < HEIGHT_SQUARE; i++) {
-                    int indexVerticalOfCurrentValue = i + shiftVertical;
-                    for (int j = 0; j < WIDTH_SQUARE; j++) {
-                        int indexHorizontalOfCurrentValue = j + shiftHorizontal;
-                        int val = sudoku[indexVerticalOfCurrentValue][indexHorizontalOfCurrentValue];
-                        if (val == 0) {
-                            continue;
-                        }
-                        for (int k = i; k < HEIGHT_SQUARE; k++) {
-                            int indexVerticalOfComparedValue = k + shiftVertical;
-                            for (int p = 0; p < WIDTH_SQUARE; p++) {
-                                int indexHorizontalOfComparedValue = p + shiftHorizontal;
-                                if (indexVerticalOfCurrentValue == indexVerticalOfComparedValue
-                                        && (indexHorizontalOfComparedValue < indexHorizontalOfCurrentValue ||
-                                        indexHorizontalOfCurrentValue == indexHorizontalOfComparedValue)) {
-                                    continue;
-                                }
-                                if (val == sudoku[indexVerticalOfComparedValue][indexHorizontalOfComparedValue]) {
-                                    return true;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
-    private int findOutPossiblePositions(int number, int indexSquareVertical, int indexSquareHorizontal,
-                                         boolean[][] smallSquareWithPossiblePositionsOfNumber, int[][] sudoku) {
-        int countPositions = 0;
-        int shiftVertical = getShiftVertical(indexSquareVertical);
-        int shiftHorizontal = getShiftHorizontal(indexSquareHorizontal);
-        for (int i = 0; i < HEIGHT_SQUARE; i++) {
-            nextPosition:
-            for (int j = 0; j < WIDTH_SQUARE; j++) {
-                if (sudoku[i + shiftVertical][j + shiftHorizontal] == 0) {
-                    int possibleNumberPositionVertical = i + shiftVertical;
-                    int possibleNumberPositionHorizontal = j + shiftHorizontal;
-                    for (int k = 0; k < sudoku.length; k++) {
-                        if (sudoku[k][possibleNumberPositionHorizontal] == number ||
-                                sudoku[possibleNumberPositionVertical][k] == number) {
-                            continue nextPosition;
-                        }
-                        if (k == sudoku.length - 1) {
-                            smallSquareWithPossiblePositionsOfNumber[i][j] = true;
-                            countPositions++;
-                        }
-                    }
+    /**
+     * Fills the only empty cell of a line with the number which is missing from the sum of the line.
+     */
+    private boolean fillNumberInLine(int unit) {
+        int emptyCell = -1;
+        int sumOfElements = 0;
+        for (int cell : geometry.getUnitCells(unit)) {
+            int value = board.get(cell);
+            if (value == 0) {
+                if (emptyCell >= 0) {
+                    return false;
                 }
+                emptyCell = cell;
             }
+            sumOfElements += value;
         }
-
-        return countPositions;
-    }
-
-    private void fill(int number, int indexSquareVertical, int indexSquareHorizontal, int[][] sudoku) {
-        int shiftVertical = getShiftVertical(indexSquareVertical);
-        int shiftHorizontal = getShiftHorizontal(indexSquareHorizontal);
-        for (int i = 0; i < HEIGHT_SQUARE; i++) {
-            for (int j = 0; j < WIDTH_SQUARE; j++) {
-                if (sudoku[i + shiftVertical][j + shiftHorizontal] == 0) {
-                    sudoku[i + shiftVertical][j + shiftHorizontal] = number;
-                    break;
-                }
-            }
+        if (emptyCell < 0 || sumOfElements < minSumWithoutNumber || sumOfElements > maxSumWithoutNumber) {
+            return false;
         }
+        place(emptyCell, sumOfNumbers - sumOfElements);
+        return true;
     }
 
-    private void fillWithConfidentPosition(int number, int indexSquareVertical, int indexSquareHorizontal,
-                                           boolean[][] smallSquareWithPossiblePositionsOfNumber, int[][] sudoku) {
-        int shiftVertical = getShiftVertical(indexSquareVertical);
-        int shiftHorizontal = getShiftHorizontal(indexSquareHorizontal);
-        for (int i = 0; i < HEIGHT_SQUARE; i++) {
-            for (int j = 0; j < WIDTH_SQUARE; j++) {
-                if (smallSquareWithPossiblePositionsOfNumber[i][j]) {
-                    sudoku[i + shiftVertical][j + shiftHorizontal] = number;
-                    break;
-                }
-            }
-        }
+    private boolean isSudokuHasEmptyCells() {
+        return candidates.getAmountOfEmptyCells() > 0;
     }
-
 }
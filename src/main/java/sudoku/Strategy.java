@@ -0,0 +1,13 @@
+package sudoku;
+
+/**
+ * Logical technique of {@link Solver} which looks at one unit at a time, a row, a column or a square. A unit is
+ * given again every time candidates of its cells change, so a strategy doesn't look for work by itself.
+ */
+interface Strategy {
+
+    /**
+     * Places numbers or removes candidates found in the unit. Units a strategy has nothing to do with are skipped.
+     */
+    void apply(int unit);
+}
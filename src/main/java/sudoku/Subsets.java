@@ -0,0 +1,103 @@
+package sudoku;
+
+import java.util.Arrays;
+
+/**
+ * Naked and hidden subsets of a unit of the given size, pairs or triples. A naked subset is as many cells as
+ * numbers where only these numbers fit, so other cells of the unit can't have them. A hidden subset is as many
+ * numbers as cells which are the only places of the numbers, so the cells can't have other numbers.
+ */
+class Subsets {
+
+    private final Geometry geometry;
+    private final Candidates candidates;
+    private final int size;
+    //Workspace reused from one unit to another. For naked subsets an item is a cell and its mask the candidates,
+    //for hidden subsets an item is a number and its mask the positions inside the unit
+    private final int[] itemMasks;
+    private final int[] items;
+    private final int[] positions;
+    private int amountOfItems;
+    private int[] unitCells;
+    private boolean isNaked;
+
+    Subsets(Candidates candidates, int size) {
+        this.candidates = candidates;
+        this.size = size;
+        geometry = candidates.getGeometry();
+        int lineSize = geometry.getLineSize();
+        itemMasks = new int[lineSize];
+        items = new int[lineSize];
+        positions = new int[lineSize];
+    }
+
+    void applyNaked(int unit) {
+        unitCells = geometry.getUnitCells(unit);
+        isNaked = true;
+        amountOfItems = 0;
+        for (int i = 0; i < unitCells.length; i++) {
+            addItem(1 << i, candidates.get(unitCells[i]));
+        }
+        find(0, 0, 0, 0);
+    }
+
+    void applyHidden(int unit) {
+        unitCells = geometry.getUnitCells(unit);
+        isNaked = false;
+        Arrays.fill(positions, 0);
+        for (int i = 0; i < unitCells.length; i++) {
+            for (int numbers = candidates.get(unitCells[i]); numbers != 0; numbers &= numbers - 1) {
+                positions[Integer.numberOfTrailingZeros(numbers)] |= 1 << i;
+            }
+        }
+        amountOfItems = 0;
+        for (int i = 0; i < positions.length; i++) {
+            addItem(1 << i, positions[i]);
+        }
+        find(0, 0, 0, 0);
+    }
+
+    /**
+     * Items of one element are singles, not subsets.
+     */
+    private void addItem(int item, int mask) {
+        int amount = Integer.bitCount(mask);
+        if (amount >= 2 && amount <= size) {
+            items[amountOfItems] = item;
+            itemMasks[amountOfItems] = mask;
+            amountOfItems++;
+        }
+    }
+
+    /**
+     * Tries every combination of items which masks together have no more bits than the size.
+     */
+    private void find(int from, int depth, int chosenItems, int union) {
+        if (depth == size) {
+            if (Integer.bitCount(union) == size) {
+                eliminate(chosenItems, union);
+            }
+            return;
+        }
+        for (int i = from; i < amountOfItems; i++) {
+            int nextUnion = union | itemMasks[i];
+            if (Integer.bitCount(nextUnion) <= size) {
+                find(i + 1, depth + 1, chosenItems | items[i], nextUnion);
+            }
+        }
+    }
+
+    private void eliminate(int chosenItems, int union) {
+        if (isNaked) {
+            for (int i = 0; i < unitCells.length; i++) {
+                if ((chosenItems & 1 << i) == 0) {
+                    candidates.eliminate(unitCells[i], union);
+                }
+            }
+        } else {
+            for (int cells = union; cells != 0; cells &= cells - 1) {
+                candidates.eliminate(unitCells[Integer.numberOfTrailingZeros(cells)], ~chosenItems);
+            }
+        }
+    }
+}
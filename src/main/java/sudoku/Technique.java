@@ -0,0 +1,31 @@
+package sudoku;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Logical methods of {@link Solver} from the cheapest to the most expensive, the solver always runs them in
+ * this order.
+ */
+@Getter
+@AllArgsConstructor
+public enum Technique {
+
+    //A cell with one candidate, or a number with one possible cell in a row, a column or a square
+    SINGLES(Difficulty.EASY),
+    SMALL_SQUARES(Difficulty.EASY),
+    COLUMN_ROWS(Difficulty.MEDIUM),
+    //A number of a square which fits only one line is removed from the rest of the line
+    POINTING_PAIRS(Difficulty.MEDIUM),
+    //A number of a line which fits only one square is removed from the rest of the square
+    BOX_LINE_REDUCTION(Difficulty.MEDIUM),
+    NAKED_PAIRS(Difficulty.HARD),
+    HIDDEN_PAIRS(Difficulty.HARD),
+    NAKED_TRIPLES(Difficulty.HARD),
+    HIDDEN_TRIPLES(Difficulty.HARD),
+    X_WING(Difficulty.HARD),
+    LOCAL_TABLES(Difficulty.HARD);
+
+    //Grade of a sudoku which needs the technique
+    private final Difficulty difficulty;
+}
@@ -1,6 +0,0 @@
-package sudoku;
-
-public enum Type {
-
-    ROW, COLUMN
-}
@@ -0,0 +1,155 @@
+package sudoku;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Checks completed grids: every cell has a number and no number repeats in a row, a column or a square. A grid
+ * is checked in one pass over its cells with masks of all units at once, the first repeated number stops it.
+ * Many grids are checked from a buffer with a byte per cell or with records of the {@link PackedFormat}.
+ */
+public class Validator {
+
+    //Null when grids are checked in the calling thread
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final Geometry geometry;
+    private final int lineSize;
+    private final int amountOfCells;
+
+    public Validator() {
+        this(Geometry.STANDARD);
+    }
+
+    public Validator(Geometry geometry) {
+        this(null, 1, geometry);
+    }
+
+    /**
+     * @param executor runs chunks of {@link #validate} when the parallelism is more than 1
+     */
+    public Validator(ExecutorService executor, int parallelism, Geometry geometry) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be positive, but was " + parallelism);
+        }
+        if (parallelism > 1 && executor == null) {
+            throw new IllegalArgumentException("Executor is needed for parallelism " + parallelism);
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.geometry = geometry;
+        lineSize = geometry.getLineSize();
+        amountOfCells = geometry.getAmountOfCells();
+    }
+
+    /**
+     * @return whether the grid is completed correctly, false for a grid of a wrong size
+     */
+    public boolean isValid(int[][] grid) {
+        if (grid == null || grid.length != lineSize) {
+            return false;
+        }
+        int[] columnNumbers = new int[lineSize];
+        int[] squareNumbers = new int[lineSize];
+        for (int i = 0; i < lineSize; i++) {
+            int[] line = grid[i];
+            if (line == null || line.length != lineSize) {
+                return false;
+            }
+            int rowNumbers = 0;
+            for (int j = 0; j < lineSize; j++) {
+                int number = line[j];
+                if (number < 1 || number > lineSize) {
+                    return false;
+                }
+                int bit = Candidates.mask(number);
+                int squareIndex = geometry.getSquareIndex(i, j);
+                if (((rowNumbers | columnNumbers[j] | squareNumbers[squareIndex]) & bit) != 0) {
+                    return false;
+                }
+                rowNumbers |= bit;
+                columnNumbers[j] |= bit;
+                squareNumbers[squareIndex] |= bit;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param grids grids one after another, a byte per cell row by row
+     * @return whether every grid is completed correctly, in order
+     */
+    public boolean[] validate(byte[] grids) {
+        if (grids.length % amountOfCells != 0) {
+            throw new IllegalArgumentException(String.format("Buffer of %d bytes doesn't consist of grids of %d cells",
+                    grids.length, amountOfCells));
+        }
+        return validate(grids.length / amountOfCells, (grid, cell) -> grids[grid * amountOfCells + cell]);
+    }
+
+    /**
+     * @param records records of the {@link PackedFormat} between the position and the limit of the buffer, which
+     *                is not changed
+     * @return whether every grid is completed correctly, in order
+     */
+    public boolean[] validate(ByteBuffer records) {
+        PackedFormat format = new PackedFormat(geometry);
+        int firstOffset = records.position();
+        int recordSize = format.getRecordSize();
+        return validate(format.getAmountOfRecords(records),
+                (grid, cell) -> PackedFormat.get(records, firstOffset + grid * recordSize, cell));
+    }
+
+    private boolean[] validate(int amountOfGrids, CellReader cells) {
+        boolean[] result = new boolean[amountOfGrids];
+        if (parallelism == 1) {
+            validate(cells, 0, amountOfGrids, result);
+        } else {
+            Chunks.run(executor, parallelism, amountOfGrids,
+                    (fromIndex, toIndex) -> validate(cells, fromIndex, toIndex, result));
+        }
+        return result;
+    }
+
+    private void validate(CellReader cells, int fromIndex, int toIndex, boolean[] result) {
+        int[] unitNumbers = new int[2 * lineSize];
+        for (int i = fromIndex; i < toIndex; i++) {
+            result[i] = isValid(cells, i, unitNumbers);
+        }
+    }
+
+    /**
+     * @param unitNumbers workspace for numbers of columns and squares
+     */
+    private boolean isValid(CellReader cells, int grid, int[] unitNumbers) {
+        Arrays.fill(unitNumbers, 0);
+        for (int i = 0; i < lineSize; i++) {
+            int rowNumbers = 0;
+            int shift = i * lineSize;
+            for (int j = 0; j < lineSize; j++) {
+                int number = cells.get(grid, shift + j);
+                if (number < 1 || number > lineSize) {
+                    return false;
+                }
+                int bit = Candidates.mask(number);
+                int squareUnit = lineSize + geometry.getSquareIndex(i, j);
+                if (((rowNumbers | unitNumbers[j] | unitNumbers[squareUnit]) & bit) != 0) {
+                    return false;
+                }
+                rowNumbers |= bit;
+                unitNumbers[j] |= bit;
+                unitNumbers[squareUnit] |= bit;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of a cell of a grid in a buffer of many grids.
+     */
+    private interface CellReader {
+
+        int get(int grid, int cell);
+    }
+}
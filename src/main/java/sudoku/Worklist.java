@@ -0,0 +1,47 @@
+package sudoku;
+
+/**
+ * Queue of units (rows, columns and squares) which changed since a method looked at them last time.
+ * A unit is queued only once however many numbers are placed in it.
+ */
+class Worklist {
+
+    private final boolean[] queued;
+    private final int[] queue;
+    private int head;
+    private int size;
+
+    Worklist(int amountOfUnits) {
+        queued = new boolean[amountOfUnits];
+        queue = new int[amountOfUnits];
+    }
+
+    void add(int unit) {
+        if (queued[unit]) {
+            return;
+        }
+        queued[unit] = true;
+        queue[(head + size) % queue.length] = unit;
+        size++;
+    }
+
+    void addAll() {
+        for (int unit = 0; unit < queued.length; unit++) {
+            add(unit);
+        }
+    }
+
+    /**
+     * @return next unit or -1 if the queue is empty
+     */
+    int poll() {
+        if (size == 0) {
+            return -1;
+        }
+        int unit = queue[head];
+        head = (head + 1) % queue.length;
+        size--;
+        queued[unit] = false;
+        return unit;
+    }
+}
@@ -0,0 +1,52 @@
+package sudoku;
+
+/**
+ * X-Wing: when a number fits exactly two cells in each of two rows and these cells are in the same two columns,
+ * the number is in one of the diagonals, so other cells of the two columns can't have it. The same with rows and
+ * columns swapped.
+ */
+class XWing {
+
+    private final Geometry geometry;
+    private final Candidates candidates;
+    private final int lineSize;
+
+    XWing(Candidates candidates) {
+        this.candidates = candidates;
+        geometry = candidates.getGeometry();
+        lineSize = geometry.getLineSize();
+    }
+
+    void apply(int unit) {
+        if (unit >= geometry.getSquareUnit(0)) {
+            return;
+        }
+        //Units of lines parallel to the given one start at firstLine, units of crossing lines at firstCrossing
+        int firstLine = unit < lineSize ? 0 : lineSize;
+        int firstCrossing = lineSize - firstLine;
+        int lineIndex = unit - firstLine;
+        for (int numbers = candidates.getUnitCandidates(unit); numbers != 0; numbers &= numbers - 1) {
+            int bit = numbers & -numbers;
+            int linePositions = candidates.getPositions(unit, bit);
+            if (Integer.bitCount(linePositions) != 2) {
+                continue;
+            }
+            for (int other = 0; other < lineSize; other++) {
+                if (other == lineIndex || candidates.getPositions(firstLine + other, bit) != linePositions) {
+                    continue;
+                }
+                int lines = 1 << lineIndex | 1 << other;
+                for (int crossings = linePositions; crossings != 0; crossings &= crossings - 1) {
+                    int[] crossingCells = geometry.getUnitCells(firstCrossing
+                            + Integer.numberOfTrailingZeros(crossings));
+                    for (int i = 0; i < crossingCells.length; i++) {
+                        if ((lines & 1 << i) == 0) {
+                            candidates.eliminate(crossingCells[i], bit);
+                        }
+                    }
+                }
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package file;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class DuplicateDetectorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldFindFilesWithSameContent() throws IOException {
+        byte[] content = randomBytes(100_000, 1);
+        //The same size, head and tail as the content, but different in the middle
+        byte[] sameSample = content.clone();
+        sameSample[50_000]++;
+        File original = write("a/original", content);
+        File copy = write("b/c/copy", content);
+        write("a/sameSample", sameSample);
+        write("a/unique", randomBytes(10, 2));
+        File small = write("small", randomBytes(100, 3));
+        File smallCopy = write("b/small", small);
+
+        List<List<File>> duplicates;
+        long totalLength;
+        try (DuplicateDetector detector = new DuplicateDetector(ForkJoinPool.commonPool(), 2)) {
+            duplicates = detector.findDuplicates(folder.getRoot());
+            totalLength = detector.getTotalLength();
+        }
+
+        assertEquals(toSet(Arrays.asList(Arrays.asList(original, copy), Arrays.asList(small, smallCopy))),
+                toSet(duplicates));
+        //Samples of three big files, whole content of the three with the same sample and of both small files
+        assertEquals(3 * 2 * 4096 + 3 * 100_000 + 2 * 100, totalLength);
+    }
+
+    @Test
+    public void shouldKeepFirstFileByPathWhenWalkingInParallel() throws IOException {
+        byte[] content = randomBytes(10_000, 4);
+        File first = write("a/1", content);
+        File second = write("a/b/2", content);
+        File third = write("c/3", content);
+        File otherRoot = folder.newFolder("other");
+        File fourth = write("other/4", content);
+
+        ForkJoinPool walkPool = new ForkJoinPool(4);
+        List<List<File>> duplicates;
+        try (DuplicateDetector detector = new DuplicateDetector(walkPool, 2)) {
+            detector.setParallelism(Files.getFileStore(folder.getRoot().toPath()).name(), 1);
+            duplicates = detector.findDuplicates(new File(folder.getRoot(), "a"), new File(folder.getRoot(), "c"),
+                    otherRoot);
+        }
+        walkPool.shutdown();
+
+        assertEquals(Collections.singletonList(Arrays.asList(first, second, third, fourth)), duplicates);
+    }
+
+    @Test
+    public void shouldListEveryFileOnceWhenRootsOverlap() throws IOException {
+        byte[] content = randomBytes(10_000, 7);
+        File original = write("a/original", content);
+        write("a/b/unique", randomBytes(10_000, 8));
+        File nested = new File(folder.getRoot(), "a/b");
+        File sameRoot = new File(folder.getRoot(), "a/b/../../a");
+
+        List<List<File>> duplicates;
+        try (DuplicateDetector detector = new DuplicateDetector(ForkJoinPool.commonPool(), 2)) {
+            duplicates = detector.findDuplicates(nested, folder.getRoot(), sameRoot, nested);
+        }
+
+        assertEquals(Collections.emptyList(), duplicates);
+        File copy = write("a/b/copy", original);
+        try (DuplicateDetector detector = new DuplicateDetector(ForkJoinPool.commonPool(), 2)) {
+            duplicates = detector.findDuplicates(nested, folder.getRoot(), sameRoot, nested);
+        }
+        assertEquals(Collections.singletonList(Arrays.asList(copy, original)), duplicates);
+    }
+
+    @Test
+    public void shouldHashLargeFilesThroughMappedWindows() throws IOException {
+        byte[] content = randomBytes(17 * 1024 * 1024, 5);
+        File original = write("original", content);
+        File copy = write("copy", content);
+        content[content.length / 2]++;
+        write("changed", content);
+
+        List<List<File>> duplicates;
+        long totalLength;
+        try (DuplicateDetector detector = new DuplicateDetector(ForkJoinPool.commonPool(), 2)) {
+            duplicates = detector.findDuplicates(folder.getRoot());
+            totalLength = detector.getTotalLength();
+        }
+
+        assertEquals(Collections.singletonList(Arrays.asList(copy, original)), duplicates);
+        assertEquals(3 * 2 * 4096 + 3L * content.length, totalLength);
+    }
+
+    @Test
+    public void shouldGroupByEitherTierAndConfirmByContent() throws IOException {
+        byte[] content = randomBytes(20_000, 6);
+        File original = write("original", content);
+        File copy = write("copy", content);
+        content[10_000]++;
+        File changed = write("changed", content);
+        File changedCopy = write("changedCopy", content);
+
+        List<List<File>> duplicates;
+        List<List<File>> confirmed;
+        try (DuplicateDetector detector = new DuplicateDetector(ForkJoinPool.commonPool(), 2, HashTier.STRONG)) {
+            duplicates = detector.findDuplicates(folder.getRoot());
+            //As if all four files had the same hash
+            confirmed = detector.confirm(Arrays.asList(original, changed, copy, changedCopy));
+        }
+
+        assertEquals(toSet(Arrays.asList(Arrays.asList(original, copy), Arrays.asList(changed, changedCopy))),
+                toSet(duplicates));
+        assertEquals(Arrays.asList(Arrays.asList(original, copy), Arrays.asList(changed, changedCopy)), confirmed);
+    }
+
+    @Test
+    public void shouldNotGroupPathsOfTheSameFile() throws IOException {
+        byte[] content = randomBytes(20_000, 9);
+        File original = write("original", content);
+        File link = new File(folder.getRoot(), "link");
+        Files.createLink(link.toPath(), original.toPath());
+
+        List<List<File>> duplicates;
+        try (DuplicateDetector detector = new DuplicateDetector(ForkJoinPool.commonPool(), 2)) {
+            duplicates = detector.findDuplicates(folder.getRoot());
+        }
+        File copy = write("copy", content);
+        List<List<File>> confirmed;
+        try (DuplicateDetector detector = new DuplicateDetector(ForkJoinPool.commonPool(), 2)) {
+            //As if the hard link had been grouped
+            confirmed = detector.confirm(Arrays.asList(link, original, copy));
+        }
+
+        assertEquals(Collections.emptyList(), duplicates);
+        assertEquals(Collections.singletonList(Arrays.asList(link, copy)), confirmed);
+    }
+
+    @Test
+    public void shouldNotFollowSymbolicLinks() throws IOException {
+        File target = write("z.bin", randomBytes(20_000, 10));
+        Files.createSymbolicLink(new File(folder.getRoot(), "a_link").toPath(), target.toPath());
+        Files.createSymbolicLink(new File(folder.getRoot(), "dir_link").toPath(), folder.getRoot().toPath());
+
+        List<List<File>> duplicates;
+        try (DuplicateDetector detector = new DuplicateDetector(ForkJoinPool.commonPool(), 2)) {
+            duplicates = detector.findDuplicates(folder.getRoot());
+        }
+
+        assertEquals(Collections.emptyList(), duplicates);
+    }
+
+    private static Set<Set<File>> toSet(List<List<File>> groups) {
+        return groups.stream().map(HashSet::new).collect(Collectors.toSet());
+    }
+
+    private File write(String name, File source) throws IOException {
+        return write(name, Files.readAllBytes(source.toPath()));
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] result = new byte[size];
+        new Random(seed).nextBytes(result);
+        return result;
+    }
+}
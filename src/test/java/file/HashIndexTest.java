@@ -0,0 +1,127 @@
+package file;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+public class HashIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldHashOnlyChangedFilesAgain() throws IOException {
+        File dir = folder.newFolder("files");
+        Path indexPath = folder.getRoot().toPath().resolve("index");
+        byte[] content = randomBytes(20_000, 1);
+        File original = write(dir, "original", content);
+        File copy = write(dir, "copy", content);
+        File other = write(dir, "other", randomBytes(20_000, 2));
+
+        assertEquals(3 * 8192 + 2 * 20_000, scan(dir, indexPath, Arrays.asList(copy, original)));
+        assertEquals(0, scan(dir, indexPath, Arrays.asList(copy, original)));
+
+        Files.write(other.toPath(), content);
+        Files.setLastModifiedTime(other.toPath(), FileTime.fromMillis(other.lastModified() + 1000));
+        assertEquals(8192 + 20_000, scan(dir, indexPath, Arrays.asList(copy, original, other)));
+
+        try (HashIndex index = new HashIndex(indexPath, HashTier.FAST)) {
+            assertEquals(3, index.size());
+        }
+        Files.delete(other.toPath());
+        try (HashIndex index = new HashIndex(indexPath, HashTier.FAST)) {
+            assertEquals(3, index.size());
+        }
+        try (HashIndex index = new HashIndex(indexPath, HashTier.FAST)) {
+            assertEquals(2, index.size());
+        }
+    }
+
+    @Test
+    public void shouldKeepRecordsBeforeBrokenOne() throws IOException {
+        File dir = folder.newFolder("files");
+        Path indexPath = folder.getRoot().toPath().resolve("index");
+        byte[] content = randomBytes(100, 3);
+        write(dir, "original", content);
+        write(dir, "copy", content);
+        HashIndex index = new HashIndex(indexPath, HashTier.FAST);
+        try (DuplicateDetector detector = new DuplicateDetector(ForkJoinPool.commonPool(), 1, HashTier.FAST,
+                index)) {
+            detector.findDuplicates(dir);
+        }
+        index.close();
+        //Cuts the last record as a crash in the middle of writing it would
+        try (RandomAccessFile file = new RandomAccessFile(indexPath.toFile(), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        try (HashIndex reopened = new HashIndex(indexPath, HashTier.FAST)) {
+            assertEquals(1, reopened.size());
+        }
+        try (HashIndex otherTier = new HashIndex(indexPath, HashTier.STRONG)) {
+            assertEquals(0, otherTier.size());
+        }
+    }
+
+    @Test
+    public void shouldKeepFilesByCanonicalPath() throws IOException {
+        File dir = folder.newFolder("files");
+        Path indexPath = folder.getRoot().toPath().resolve("index");
+        byte[] content = randomBytes(100, 4);
+        write(dir, "original", content);
+        write(dir, "copy", content);
+        File otherSpelling = new File(dir, "../files");
+
+        try (HashIndex index = new HashIndex(indexPath, HashTier.FAST)) {
+            try (DuplicateDetector detector = new DuplicateDetector(ForkJoinPool.commonPool(), 1, HashTier.FAST,
+                    index)) {
+                detector.findDuplicates(dir);
+                detector.findDuplicates(otherSpelling);
+            }
+            assertEquals(2, index.size());
+            index.remove(new File(otherSpelling, "copy"));
+            assertEquals(1, index.size());
+        }
+        try (HashIndex index = new HashIndex(indexPath, HashTier.FAST)) {
+            assertEquals(1, index.size());
+        }
+    }
+
+    /**
+     * @return amount of bytes read to find duplicates
+     */
+    private static long scan(File dir, Path indexPath, List<File> expected) throws IOException {
+        try (HashIndex index = new HashIndex(indexPath, HashTier.FAST);
+             DuplicateDetector detector = new DuplicateDetector(ForkJoinPool.commonPool(), 2, HashTier.FAST,
+                     index)) {
+            assertEquals(Collections.singletonList(expected), detector.findDuplicates(dir));
+            return detector.getTotalLength();
+        }
+    }
+
+    private static File write(File dir, String name, byte[] content) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] result = new byte[size];
+        new Random(seed).nextBytes(result);
+        return result;
+    }
+}
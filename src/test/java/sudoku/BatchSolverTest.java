@@ -0,0 +1,123 @@
+package sudoku;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static sudoku.TestSudoku.countEmptyCells;
+
+public class BatchSolverTest {
+
+    private static final int[][] SOLUTION = {
+            {1, 5, 4, 2, 9, 3, 6, 7, 8},
+            {6, 2, 7, 5, 1, 8, 3, 9, 4},
+            {8, 9, 3, 4, 6, 7, 5, 1, 2},
+
+            {7, 4, 5, 9, 2, 6, 8, 3, 1},
+            {2, 6, 8, 1, 3, 4, 7, 5, 9},
+            {9, 3, 1, 7, 8, 5, 2, 4, 6},
+
+            {5, 7, 6, 8, 4, 9, 1, 2, 3},
+            {3, 1, 9, 6, 5, 2, 4, 8, 7},
+            {4, 8, 2, 3, 7, 1, 9, 6, 5}};
+    private static final int[][] PUZZLE = {
+            {1, 0, 4, 2, 0, 0, 0, 7, 8},
+            {0, 0, 0, 5, 0, 0, 0, 0, 4},
+            {0, 9, 3, 0, 0, 7, 0, 1, 0},
+
+            {0, 0, 0, 9, 0, 0, 0, 3, 1},
+            {2, 0, 8, 1, 3, 4, 0, 0, 0},
+            {0, 0, 1, 0, 8, 5, 0, 4, 6},
+
+            {0, 7, 6, 8, 4, 0, 0, 0, 0},
+            {3, 0, 0, 0, 5, 2, 0, 0, 0},
+            {0, 0, 2, 0, 0, 1, 9, 6, 5}};
+
+    @Test
+    public void shouldSolveAllPuzzlesInInputOrder() {
+        int[][][] puzzles = new int[100][][];
+        for (int i = 0; i < puzzles.length; i++) {
+            puzzles[i] = getPuzzle(i % 10);
+        }
+
+        BatchResult result = new BatchSolver().solve(Arrays.asList(puzzles));
+
+        assertEquals(puzzles.length, result.getSolutions().size());
+        assertEquals(0, result.getAmountOfFailed());
+        for (int i = 0; i < puzzles.length; i++) {
+            assertArrayEquals(SOLUTION, result.getSolutions().get(i));
+        }
+    }
+
+    @Test
+    public void shouldMarkWrongPuzzlesAsFailed() {
+        int[][] wrongPuzzle = getPuzzle(0);
+        wrongPuzzle[0][1] = 1;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        BatchResult result = new BatchSolver(executor, 2).solve(Stream.of(getPuzzle(5), wrongPuzzle, getPuzzle(20)));
+        executor.shutdown();
+
+        assertEquals(1, result.getAmountOfFailed());
+        assertArrayEquals(SOLUTION, result.getSolutions().get(0));
+        assertNull(result.getSolutions().get(1));
+        assertArrayEquals(SOLUTION, result.getSolutions().get(2));
+    }
+
+    @Test
+    public void shouldSumStatisticsOfAllPuzzles() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        BatchResult result = new BatchSolver(executor, 2, Geometry.STANDARD, true)
+                .solve(Stream.of(getPuzzle(0), getPuzzle(10), getPuzzle(20)));
+        executor.shutdown();
+
+        SolveStats stats = result.getStats();
+        long placedCells = stats.getPlacedBySearch();
+        for (Technique technique : Technique.values()) {
+            placedCells += stats.getPlacedCells(technique);
+        }
+        assertEquals(3, stats.getAmountOfSudoku());
+        assertEquals(3, stats.getPasses(Technique.SINGLES));
+        assertEquals(countEmptyCells(getPuzzle(0)) + countEmptyCells(getPuzzle(10)) + countEmptyCells(getPuzzle(20)),
+                placedCells);
+    }
+
+    @Test
+    public void shouldCountSolutionsOfAllPuzzles() {
+        int[][] twoSolutions = getPuzzle(0);
+        twoSolutions[0][0] = 0;
+        twoSolutions[4][0] = 0;
+        int[][] wrongPuzzle = getPuzzle(0);
+        wrongPuzzle[0][1] = 1;
+        BatchSolver batchSolver = new BatchSolver();
+
+        long[] result = batchSolver.countSolutions(Arrays.asList(getPuzzle(0), wrongPuzzle, new int[9][9]), 2);
+
+        assertArrayEquals(new long[]{1, 0, 2}, result);
+        assertEquals(288, new BatchSolver(ForkJoinPool.commonPool(), 2, new Geometry(2, 2))
+                .countSolutions(new int[4][4], 1000));
+        assertEquals(1000, batchSolver.countSolutions(new int[9][9], 1000));
+    }
+
+    /**
+     * @return copy of the puzzle with some more cells taken from the solution
+     */
+    private static int[][] getPuzzle(int amountOfHints) {
+        int[][] puzzle = new int[PUZZLE.length][];
+        for (int i = 0; i < PUZZLE.length; i++) {
+            puzzle[i] = PUZZLE[i].clone();
+        }
+        for (int i = 0, cell = 0; i < amountOfHints; i++, cell = (cell + 37) % 81) {
+            puzzle[cell / 9][cell % 9] = SOLUTION[cell / 9][cell % 9];
+        }
+        return puzzle;
+    }
+}
@@ -0,0 +1,84 @@
+package sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static sudoku.TestSudoku.copy;
+import static sudoku.TestSudoku.countEmptyCells;
+
+public class GeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Solver solver = new Solver(Geometry.STANDARD, true, Generator.GRADING_TECHNIQUES);
+
+    @Test
+    public void shouldGenerateMinimalPuzzlesWithUniqueSolution() {
+        List<GeneratedPuzzle> puzzles = new Generator(42).generate(0, 20);
+
+        for (GeneratedPuzzle generated : puzzles) {
+            int[][] puzzle = copy(generated.getPuzzle());
+            assertEquals(1, solver.countSolutions(puzzle, 2));
+            assertEquals(generated.getAmountOfClues(), 81 - countEmptyCells(puzzle));
+            solver.solve(puzzle);
+            assertArrayEquals(generated.getSolution(), puzzle);
+            assertEquals(generated.getDifficulty(), Difficulty.of(solver.getLastStats()));
+        }
+        int[][] puzzle = copy(puzzles.get(0).getPuzzle());
+        for (int i = 0; i < 81; i++) {
+            int number = puzzle[i / 9][i % 9];
+            puzzle[i / 9][i % 9] = 0;
+            assertTrue(number == 0 || solver.countSolutions(puzzle, 2) == 2);
+            puzzle[i / 9][i % 9] = number;
+        }
+    }
+
+    @Test
+    public void shouldGenerateSamePuzzlesForSameSeed() {
+        GeneratedPuzzle puzzle = new Generator(7).generate(0, 10).get(9);
+
+        assertArrayEquals(puzzle.getPuzzle(), new Generator(7).generate(9).getPuzzle());
+    }
+
+    @Test
+    public void shouldGenerateSudokuWithRectangularSquares() {
+        Geometry geometry = new Geometry(2, 3);
+        Generator generator = new Generator(ForkJoinPool.commonPool(), 2, geometry, 3);
+
+        for (GeneratedPuzzle puzzle : generator.generate(0, 10)) {
+            assertEquals(1, new Solver(geometry).countSolutions(puzzle.getPuzzle(), 2));
+        }
+    }
+
+    @Test
+    public void shouldWritePuzzlesByDifficulty() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        Map<Difficulty, Integer> amounts = new Generator(1).generate(30, directory);
+
+        int amountRead = 0;
+        for (Difficulty difficulty : Difficulty.values()) {
+            try (PuzzleReader reader = new PuzzleReader(directory.resolve(difficulty.name().toLowerCase() + ".txt"))) {
+                int[][] puzzle = new int[9][9];
+                int amount = 0;
+                while (reader.read(puzzle)) {
+                    amount++;
+                }
+                assertEquals(amounts.get(difficulty).intValue(), amount);
+                amountRead += amount;
+            }
+        }
+        assertEquals(30, amountRead);
+    }
+}
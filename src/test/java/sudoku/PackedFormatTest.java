@@ -0,0 +1,100 @@
+package sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static sudoku.TestSudoku.copy;
+
+public class PackedFormatTest {
+
+    private static final int[][] SOLUTION = {
+            {1, 5, 4, 2, 9, 3, 6, 7, 8},
+            {6, 2, 7, 5, 1, 8, 3, 9, 4},
+            {8, 9, 3, 4, 6, 7, 5, 1, 2},
+
+            {7, 4, 5, 9, 2, 6, 8, 3, 1},
+            {2, 6, 8, 1, 3, 4, 7, 5, 9},
+            {9, 3, 1, 7, 8, 5, 2, 4, 6},
+
+            {5, 7, 6, 8, 4, 9, 1, 2, 3},
+            {3, 1, 9, 6, 5, 2, 4, 8, 7},
+            {4, 8, 2, 3, 7, 1, 9, 6, 5}};
+    private static final int[][] PUZZLE = {
+            {1, 0, 4, 2, 0, 0, 0, 7, 8},
+            {0, 0, 0, 5, 0, 0, 0, 0, 4},
+            {0, 9, 3, 0, 0, 7, 0, 1, 0},
+
+            {0, 0, 0, 9, 0, 0, 0, 3, 1},
+            {2, 0, 8, 1, 3, 4, 0, 0, 0},
+            {0, 0, 1, 0, 8, 5, 0, 4, 6},
+
+            {0, 7, 6, 8, 4, 0, 0, 0, 0},
+            {3, 0, 0, 0, 5, 2, 0, 0, 0},
+            {0, 0, 2, 0, 0, 1, 9, 6, 5}};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PackedFormat format = new PackedFormat();
+
+    @Test
+    public void shouldEncodeAndDecodeRecordsOf41Bytes() {
+        ByteBuffer buffer = format.encode(Arrays.asList(PUZZLE, SOLUTION));
+
+        assertEquals(41, format.getRecordSize());
+        assertEquals(82, buffer.remaining());
+        assertEquals(0x10, buffer.get(0));
+        assertEquals(0x50, buffer.get(40));
+        List<int[][]> decoded = format.decode(buffer);
+        assertArrayEquals(PUZZLE, decoded.get(0));
+        assertArrayEquals(SOLUTION, decoded.get(1));
+        assertEquals(8, new PackedFormat(new Geometry(2, 2)).getRecordSize());
+    }
+
+    @Test
+    public void shouldSolveRecordsInDirectBuffer() {
+        int[][] wrongPuzzle = copy(PUZZLE);
+        wrongPuzzle[0][1] = 1;
+        ByteBuffer heapBuffer = format.encode(Arrays.asList(PUZZLE, wrongPuzzle, PUZZLE));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(heapBuffer.remaining() + 1);
+        buffer.put((byte) 1).put(heapBuffer);
+        buffer.position(1);
+        //Out of range for 9x9 sudoku
+        buffer.put(1 + 2 * 41, (byte) 0xF0);
+
+        BatchResult result = new BatchSolver().solve(buffer);
+
+        assertEquals(3, result.getAmountOfPuzzles());
+        assertEquals(2, result.getAmountOfFailed());
+        assertEquals(1, buffer.position());
+        List<int[][]> solutions = format.decode(buffer);
+        assertArrayEquals(SOLUTION, solutions.get(0));
+        assertArrayEquals(new int[9][9], solutions.get(1));
+        assertArrayEquals(new int[9][9], solutions.get(2));
+    }
+
+    @Test
+    public void shouldSolvePackedFileInPlace() throws IOException {
+        ByteBuffer buffer = format.encode(Arrays.asList(PUZZLE, PUZZLE));
+        Path file = folder.newFile().toPath();
+        Files.write(file, buffer.array());
+
+        BatchResult result = new BatchSolver().solve(file);
+
+        assertEquals(2, result.getAmountOfPuzzles());
+        assertEquals(0, result.getAmountOfFailed());
+        List<int[][]> solutions = format.decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+        assertArrayEquals(SOLUTION, solutions.get(0));
+        assertArrayEquals(SOLUTION, solutions.get(1));
+    }
+}
@@ -0,0 +1,69 @@
+package sudoku;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static sudoku.TestSudoku.HARD_PUZZLE;
+import static sudoku.TestSudoku.copy;
+
+public class ParallelSolverTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private final ParallelSolver parallelSolver = new ParallelSolver(POOL, Geometry.STANDARD);
+
+    @AfterClass
+    public static void shutDown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void shouldSolveLikeSingleThread() {
+        int[][] puzzle = copy(HARD_PUZZLE);
+        int[][] expected = copy(HARD_PUZZLE);
+        new Solver().solve(expected);
+
+        SolveResult result = parallelSolver.solve(puzzle);
+
+        assertEquals(SolveStatus.SOLVED, result.getStatus());
+        assertArrayEquals(expected, result.getSolution());
+        assertArrayEquals(HARD_PUZZLE, puzzle);
+
+        int[][] wrongPuzzle = copy(HARD_PUZZLE);
+        wrongPuzzle[0][1] = 8;
+        assertEquals(SolveStatus.INVALID, parallelSolver.solve(wrongPuzzle).getStatus());
+        int[][] noCandidates = {
+                {0, 0, 1, 2},
+                {0, 0, 0, 0},
+                {3, 0, 0, 0},
+                {4, 0, 0, 0}};
+        assertEquals(SolveStatus.CONTRADICTION,
+                new ParallelSolver(POOL, new Geometry(2, 2)).solve(noCandidates).getStatus());
+    }
+
+    @Test
+    public void shouldSolveBigSudokuWithManySolutions() {
+        Geometry geometry = Geometry.ofSquareSize(4);
+        int[][] sudoku = new int[16][16];
+        for (int i = 0; i < 16; i++) {
+            sudoku[i][(i * 4 + i / 4) % 16] = i % 9 + 1;
+        }
+
+        SolveResult result = new ParallelSolver(POOL, geometry).solve(sudoku);
+
+        assertEquals(SolveStatus.SOLVED, result.getStatus());
+        assertTrue(new Validator(geometry).isValid(result.getSolution()));
+    }
+
+    @Test
+    public void shouldStopCountingAtLimit() {
+        assertEquals(1, parallelSolver.countSolutions(HARD_PUZZLE, 2));
+        assertEquals(288, new ParallelSolver(POOL, new Geometry(2, 2)).countSolutions(new int[4][4], 1000));
+        assertEquals(1000, parallelSolver.countSolutions(new int[9][9], 1000));
+    }
+}
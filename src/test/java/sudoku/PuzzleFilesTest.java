@@ -0,0 +1,86 @@
+package sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PuzzleFilesTest {
+
+    private static final String PUZZLE =
+            "1.42...78...5....4.93..7.1....9...312.8134.....1.85.46.7684....3...52.....2..1965";
+    private static final String SOLUTION =
+            "154293678627518394893467512745926831268134759931785246576849123319652487482371965";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void shouldReadPuzzlePerLine() throws IOException {
+        Path input = write(PUZZLE + "\r\n\n" + PUZZLE.replace('.', '0') + ",comment\n" + SOLUTION);
+        int[][] sudoku = new int[9][9];
+
+        try (PuzzleReader reader = new PuzzleReader(input)) {
+            assertTrue(reader.read(sudoku));
+            assertEquals(1, sudoku[0][0]);
+            assertEquals(0, sudoku[0][1]);
+            assertEquals(5, sudoku[8][8]);
+            assertTrue(reader.read(sudoku));
+            assertEquals(0, sudoku[0][1]);
+            assertTrue(reader.read(sudoku));
+            assertEquals(5, sudoku[0][1]);
+            assertFalse(reader.read(sudoku));
+        }
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenLineIsTooShort() throws IOException {
+        Path input = write(PUZZLE.substring(0, 80));
+
+        expectedException.expect(SudokuException.class);
+        expectedException.expectMessage("Line 1 has only 80 cells");
+
+        try (PuzzleReader reader = new PuzzleReader(input)) {
+            reader.read(new int[9][9]);
+        }
+    }
+
+    @Test
+    public void shouldStreamSolutionsFromFileToFile() throws IOException {
+        Path input = write(PUZZLE + "\n" + PUZZLE.replace('5', '1') + "\n" + PUZZLE + "\n");
+        Path output = folder.newFile().toPath();
+
+        BatchResult result;
+        try (PuzzleReader reader = new PuzzleReader(input); PuzzleWriter writer = new PuzzleWriter(output)) {
+            result = new BatchSolver().solve(reader, writer);
+        }
+
+        assertEquals(3, result.getAmountOfPuzzles());
+        assertEquals(1, result.getAmountOfFailed());
+        List<String> lines = Files.readAllLines(output, StandardCharsets.US_ASCII);
+        char[] emptyGrid = new char[81];
+        Arrays.fill(emptyGrid, '0');
+        assertArrayEquals(new String[]{SOLUTION, new String(emptyGrid), SOLUTION}, lines.toArray());
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+}
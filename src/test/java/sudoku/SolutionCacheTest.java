@@ -0,0 +1,168 @@
+package sudoku;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static sudoku.TestSudoku.copy;
+
+public class SolutionCacheTest {
+
+    private static final int[][] SOLUTION = {
+            {1, 5, 4, 2, 9, 3, 6, 7, 8},
+            {6, 2, 7, 5, 1, 8, 3, 9, 4},
+            {8, 9, 3, 4, 6, 7, 5, 1, 2},
+
+            {7, 4, 5, 9, 2, 6, 8, 3, 1},
+            {2, 6, 8, 1, 3, 4, 7, 5, 9},
+            {9, 3, 1, 7, 8, 5, 2, 4, 6},
+
+            {5, 7, 6, 8, 4, 9, 1, 2, 3},
+            {3, 1, 9, 6, 5, 2, 4, 8, 7},
+            {4, 8, 2, 3, 7, 1, 9, 6, 5}};
+    private static final int[][] PUZZLE = {
+            {1, 0, 4, 2, 0, 0, 0, 7, 8},
+            {0, 0, 0, 5, 0, 0, 0, 0, 4},
+            {0, 9, 3, 0, 0, 7, 0, 1, 0},
+
+            {0, 0, 0, 9, 0, 0, 0, 3, 1},
+            {2, 0, 8, 1, 3, 4, 0, 0, 0},
+            {0, 0, 1, 0, 8, 5, 0, 4, 6},
+
+            {0, 7, 6, 8, 4, 0, 0, 0, 0},
+            {3, 0, 0, 0, 5, 2, 0, 0, 0},
+            {0, 0, 2, 0, 0, 1, 9, 6, 5}};
+
+    private final Solver solver = new Solver();
+
+    @Test
+    public void shouldSolveEquivalentSudokuFromCache() {
+        SolutionCache cache = new SolutionCache(10);
+        Random random = new Random(1);
+        int[][] puzzle = copy(PUZZLE);
+
+        cache.solve(puzzle, solver);
+
+        assertArrayEquals(SOLUTION, puzzle);
+        for (int i = 0; i < 20; i++) {
+            Transformation transformation = new Transformation(random);
+            int[][] equivalentPuzzle = transformation.apply(PUZZLE);
+
+            cache.solve(equivalentPuzzle, solver);
+
+            assertArrayEquals(transformation.apply(SOLUTION), equivalentPuzzle);
+        }
+        assertEquals(1, cache.getMisses());
+        assertEquals(20, cache.getHits());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void shouldFindSameCanonicalFormForEquivalentSudoku() {
+        Canonicalizer canonicalizer = new Canonicalizer(Geometry.STANDARD);
+        Random random = new Random(2);
+
+        for (GeneratedPuzzle generated : new Generator(3).generate(0, 10)) {
+            String key = canonicalizer.canonicalize(generated.getPuzzle()).getKey();
+            for (int i = 0; i < 5; i++) {
+                int[][] equivalentPuzzle = new Transformation(random).apply(generated.getPuzzle());
+                assertEquals(key, canonicalizer.canonicalize(equivalentPuzzle).getKey());
+            }
+        }
+        assertEquals(canonicalizer.canonicalize(SOLUTION).getKey(),
+                canonicalizer.canonicalize(new Transformation(random).apply(SOLUTION)).getKey());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedSolution() {
+        SolutionCache cache = new SolutionCache(1);
+        int[][] otherPuzzle = copy(PUZZLE);
+        otherPuzzle[0][1] = SOLUTION[0][1];
+
+        cache.solve(copy(PUZZLE), solver);
+        cache.solve(otherPuzzle, solver);
+        cache.solve(copy(PUZZLE), solver);
+
+        assertEquals(3, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test(timeout = 2000)
+    public void shouldSolveSparseSudokuWithoutCache() {
+        SolutionCache cache = new SolutionCache(10);
+        int[][] empty = new int[9][9];
+
+        cache.solve(empty, solver);
+
+        assertTrue(new Validator().isValid(empty));
+        //Every arrangement of rows and columns ties
+        assertNull(new Canonicalizer(Geometry.STANDARD).canonicalize(new int[9][9]));
+        assertEquals(0, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    /**
+     * Random transformation which keeps a sudoku correct: relabeling, transposition, swaps of bands and stacks,
+     * of rows inside a band and of columns inside a stack.
+     */
+    private static class Transformation {
+
+        private final int[] labels;
+        private final boolean transposed;
+        private final int[] rows;
+        private final int[] columns;
+
+        Transformation(Random random) {
+            labels = new int[10];
+            int[] numbers = shuffled(9, random);
+            for (int i = 0; i < 9; i++) {
+                labels[i + 1] = numbers[i] + 1;
+            }
+            transposed = random.nextBoolean();
+            rows = arrangement(random);
+            columns = arrangement(random);
+        }
+
+        int[][] apply(int[][] sudoku) {
+            int[][] result = new int[9][9];
+            for (int i = 0; i < 9; i++) {
+                for (int j = 0; j < 9; j++) {
+                    int number = transposed ? sudoku[columns[j]][rows[i]] : sudoku[rows[i]][columns[j]];
+                    result[i][j] = labels[number];
+                }
+            }
+            return result;
+        }
+
+        private static int[] arrangement(Random random) {
+            int[] bands = shuffled(3, random);
+            int[] result = new int[9];
+            for (int band = 0; band < 3; band++) {
+                int[] lines = shuffled(3, random);
+                for (int line = 0; line < 3; line++) {
+                    result[band * 3 + line] = bands[band] * 3 + lines[line];
+                }
+            }
+            return result;
+        }
+
+        private static int[] shuffled(int amount, Random random) {
+            int[] result = new int[amount];
+            for (int i = 0; i < amount; i++) {
+                result[i] = i;
+            }
+            for (int i = amount - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int value = result[i];
+                result[i] = result[j];
+                result[j] = value;
+            }
+            return result;
+        }
+    }
+}
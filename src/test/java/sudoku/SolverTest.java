@@ -4,13 +4,23 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.lang.management.ManagementFactory;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import static com.google.common.collect.Sets.newHashSet;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static sudoku.TestSudoku.HARD_PUZZLE;
+import static sudoku.TestSudoku.copy;
+import static sudoku.TestSudoku.countEmptyCells;
 
 public class SolverTest {
 
@@ -230,19 +240,19 @@ public class SolverTest {
     }
 
     @Test
-    public void shouldPartiallySolveSixLevelsComplexity() {
+    public void shouldSolveSixLevelsComplexity() {
         int[][] result = {
-                {0, 5, 0, 0, 6, 0, 0, 0, 0},
-                {0, 1, 0, 5, 7, 9, 0, 2, 0},
-                {4, 0, 0, 0, 8, 0, 5, 0, 0},
+                {7, 5, 8, 4, 6, 2, 9, 1, 3},
+                {3, 1, 6, 5, 7, 9, 8, 2, 4},
+                {4, 9, 2, 1, 8, 3, 5, 7, 6},
 
-                {8, 2, 1, 7, 0, 5, 0, 6, 9},
-                {0, 7, 0, 0, 0, 0, 0, 0, 0},
-                {0, 4, 0, 6, 2, 1, 7, 8, 0},
+                {8, 2, 1, 7, 4, 5, 3, 6, 9},
+                {6, 7, 5, 9, 3, 8, 1, 4, 2},
+                {9, 4, 3, 6, 2, 1, 7, 8, 5},
 
-                {5, 6, 4, 0, 1, 0, 0, 0, 0},
-                {1, 0, 0, 0, 5, 6, 0, 3, 0},
-                {0, 0, 0, 0, 0, 0, 6, 5, 1}};
+                {5, 6, 4, 3, 1, 7, 2, 9, 8},
+                {1, 8, 9, 2, 5, 6, 4, 3, 7},
+                {2, 3, 7, 8, 9, 4, 6, 5, 1}};
         int[][] inputData = {
                 {0, 0, 0, 0, 0, 0, 0, 0, 0},
                 {0, 1, 0, 0, 7, 9, 0, 2, 0},
@@ -261,6 +271,190 @@ public class SolverTest {
         assertArrayEquals(result, inputData);
     }
 
+    @Test
+    public void shouldSolveWithSearchWhenLogicalMethodsAreStuck() {
+        int[][] result = {
+                {8, 1, 2, 7, 5, 3, 6, 4, 9},
+                {9, 4, 3, 6, 8, 2, 1, 7, 5},
+                {6, 7, 5, 4, 9, 1, 2, 8, 3},
+
+                {1, 5, 4, 2, 3, 7, 8, 9, 6},
+                {3, 6, 9, 8, 4, 5, 7, 2, 1},
+                {2, 8, 7, 1, 6, 9, 5, 3, 4},
+
+                {5, 2, 1, 9, 7, 4, 3, 6, 8},
+                {4, 3, 8, 5, 2, 6, 9, 1, 7},
+                {7, 9, 6, 3, 1, 8, 4, 5, 2}};
+        int[][] inputData = copy(HARD_PUZZLE);
+
+        solver.solve(inputData);
+
+        assertArrayEquals(result, inputData);
+    }
+
+    @Test
+    public void shouldCountSolutions() {
+        int[][] inputData = copy(HARD_PUZZLE);
+        int[][] copy = copy(inputData);
+
+        assertTrue(solver.hasUniqueSolution(inputData));
+        assertArrayEquals(copy, inputData);
+
+        inputData[0][0] = 0;
+        assertEquals(2, solver.countSolutions(inputData, 2));
+        assertEquals(288, new Solver(new Geometry(2, 2)).countSolutions(new int[4][4], 1000));
+
+        inputData[0][1] = 3;
+        assertEquals(0, solver.countSolutions(inputData, 2));
+    }
+
+    @Test
+    public void shouldReportStatusInsteadOfThrowing() {
+        GeneratedPuzzle generated = new Generator(5).generate(0);
+        int[][] puzzle = copy(generated.getPuzzle());
+
+        SolveResult solved = solver.trySolve(puzzle);
+
+        assertEquals(SolveStatus.SOLVED, solved.getStatus());
+        assertArrayEquals(generated.getSolution(), solved.getSolution());
+        assertArrayEquals(generated.getPuzzle(), puzzle);
+        assertEquals(0, solved.getAmountOfEmptyCells());
+
+        int[][] hardPuzzle = copy(HARD_PUZZLE);
+        SolveResult partial = solver.trySolveLogically(hardPuzzle);
+        assertEquals(SolveStatus.PARTIAL, partial.getStatus());
+        assertTrue(partial.getAmountOfEmptyCells() > 0);
+        assertEquals(hardPuzzle[0][0], partial.getSolution()[0][0]);
+
+        int[][] noCandidates = {
+                {0, 0, 1, 2},
+                {0, 0, 0, 0},
+                {3, 0, 0, 0},
+                {4, 0, 0, 0}};
+        SolveResult contradiction = new Solver(new Geometry(2, 2)).trySolve(noCandidates);
+        assertEquals(SolveStatus.CONTRADICTION, contradiction.getStatus());
+        assertNotNull(contradiction.getMessage());
+
+        int[][] repeated = copy(generated.getPuzzle());
+        repeated[0][0] = 1;
+        repeated[0][1] = 1;
+        SolveResult repeatedResult = solver.trySolve(repeated);
+        assertEquals(SolveStatus.INVALID, repeatedResult.getStatus());
+        assertEquals(countEmptyCells(repeated), repeatedResult.getAmountOfEmptyCells());
+        assertEquals(SolveStatus.INVALID, solver.trySolve(new int[9][8]).getStatus());
+        int[][] outOfRange = copy(generated.getPuzzle());
+        outOfRange[4][4] = 10;
+        SolveResult invalid = solver.trySolve(outOfRange);
+        assertEquals(SolveStatus.INVALID, invalid.getStatus());
+        assertNull(invalid.getSolution());
+        assertEquals("Array of values is not in a range of 1...9", invalid.getMessage());
+    }
+
+    @Test
+    public void shouldStopWhenBudgetRunsOut() {
+        int[][] hardPuzzle = copy(HARD_PUZZLE);
+
+        SolveResult outOfSteps = solver.trySolve(hardPuzzle, new Budget(Long.MAX_VALUE, 1, Long.MAX_VALUE));
+        SolveResult outOfNodes = solver.trySolve(hardPuzzle, new Budget(Long.MAX_VALUE, Long.MAX_VALUE, 1));
+        SolveResult outOfTime = solver.trySolve(hardPuzzle, Budget.ofNanos(1));
+
+        assertEquals(SolveStatus.TIMEOUT, outOfSteps.getStatus());
+        assertEquals(SolveStatus.TIMEOUT, outOfNodes.getStatus());
+        assertEquals(SolveStatus.TIMEOUT, outOfTime.getStatus());
+        assertNotNull(outOfTime.getMessage());
+        assertEquals(8, outOfSteps.getSolution()[0][0]);
+        assertTrue(outOfSteps.getAmountOfEmptyCells() > 0);
+        assertTrue(outOfNodes.getAmountOfEmptyCells() > 0);
+        assertEquals(SolveStatus.SOLVED, solver.trySolve(hardPuzzle).getStatus());
+    }
+
+    @Test
+    public void shouldCountCellsPlacedByEveryMethod() {
+        int[][] inputData = copy(HARD_PUZZLE);
+        Solver solverWithStats = new Solver(Geometry.STANDARD, true, EnumSet.allOf(Technique.class));
+
+        solverWithStats.solve(inputData);
+        SolveStats stats = solverWithStats.getLastStats();
+
+        long placedByMethods = 0;
+        for (Technique technique : Technique.values()) {
+            assertEquals(1, stats.getPasses(technique));
+            placedByMethods += stats.getPlacedCells(technique);
+        }
+        assertEquals(1, stats.getAmountOfSudoku());
+        assertEquals(81 - 21, placedByMethods + stats.getPlacedBySearch());
+        assertTrue(stats.getPlacedBySearch() > 0);
+        assertTrue(stats.getSearchNodes() > 0);
+        assertTrue(stats.getPropagationIterations() >= 27);
+        assertNull(solver.getLastStats());
+    }
+
+    @Test
+    public void shouldSolveWithEveryTechniqueAlone() {
+        List<GeneratedPuzzle> puzzles = new Generator(11).generate(0, 50);
+
+        for (Technique technique : Technique.values()) {
+            Solver solverWithStats = new Solver(Geometry.STANDARD, true, EnumSet.of(technique));
+            long usedTimes = 0;
+            for (GeneratedPuzzle puzzle : puzzles) {
+                int[][] inputData = copy(puzzle.getPuzzle());
+
+                solverWithStats.solve(inputData);
+
+                assertArrayEquals(puzzle.getSolution(), inputData);
+                SolveStats stats = solverWithStats.getLastStats();
+                usedTimes += stats.getPlacedCells(technique) + stats.getEliminatedCandidates(technique);
+            }
+            assertTrue(technique + " is never used", usedTimes > 0);
+        }
+    }
+
+    @Test
+    public void shouldSearchLessWithAdvancedTechniques() {
+        Solver oldMethodsSolver = new Solver(Geometry.STANDARD, true,
+                EnumSet.of(Technique.SMALL_SQUARES, Technique.COLUMN_ROWS, Technique.LOCAL_TABLES));
+        Solver solverWithStats = new Solver(Geometry.STANDARD, true);
+        int searchedByOldMethods = 0;
+        int searched = 0;
+
+        for (GeneratedPuzzle puzzle : new Generator(12).generate(0, 200)) {
+            oldMethodsSolver.solve(copy(puzzle.getPuzzle()));
+            solverWithStats.solve(copy(puzzle.getPuzzle()));
+            searchedByOldMethods += oldMethodsSolver.getLastStats().getPlacedBySearch() > 0 ? 1 : 0;
+            searched += solverWithStats.getLastStats().getPlacedBySearch() > 0 ? 1 : 0;
+        }
+
+        assertTrue(searched + " of " + searchedByOldMethods, searched < searchedByOldMethods);
+    }
+
+    @Test
+    public void shouldNotAllocateWhenSolvingAgain() {
+        int[][] inputData = copy(HARD_PUZZLE);
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+        int[][][] sudoku = new int[1000][][];
+        for (int i = 0; i < sudoku.length; i++) {
+            sudoku[i] = copy(inputData);
+        }
+        for (int i = 0; i < sudoku.length / 2; i++) {
+            solver.solve(sudoku[i]);
+        }
+
+        long measuringAllocation = -threadBean.getThreadAllocatedBytes(threadId)
+                + threadBean.getThreadAllocatedBytes(threadId);
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = sudoku.length / 2; i < sudoku.length; i++) {
+            solver.solve(sudoku[i]);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before - measuringAllocation;
+
+        assertEquals(0, allocated);
+        assertEquals(1, sudoku[sudoku.length - 1][0][1]);
+    }
+
     @Test
     public void shouldFillLocalColumnTable() {
         int[][] inputData = {
@@ -384,4 +578,62 @@ public class SolverTest {
         assertEquals(squareTable, squareTableResult);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldSolveSixteenBySixteen() {
+        Geometry geometry = Geometry.ofSquareSize(4);
+        int[][] solution = patternSolution(geometry);
+        int[][] inputData = blankEveryThirdCell(solution);
+
+        new Solver(geometry).solve(inputData);
+
+        assertArrayEquals(solution, inputData);
+    }
+
+    @Test
+    public void shouldSolveSudokuWithRectangularSquares() {
+        Geometry geometry = new Geometry(2, 3);
+        int[][] inputData = {
+                {0, 0, 3, 0, 1, 0},
+                {5, 6, 0, 3, 2, 0},
+                {0, 5, 4, 2, 0, 3},
+                {2, 0, 6, 4, 5, 0},
+                {0, 1, 2, 0, 4, 5},
+                {0, 4, 0, 1, 0, 0}};
+        int[][] expected = {
+                {4, 2, 3, 5, 1, 6},
+                {5, 6, 1, 3, 2, 4},
+                {1, 5, 4, 2, 6, 3},
+                {2, 3, 6, 4, 5, 1},
+                {3, 1, 2, 6, 4, 5},
+                {6, 4, 5, 1, 3, 2}};
+
+        new Solver(geometry).solve(inputData);
+
+        assertArrayEquals(expected, inputData);
+    }
+
+    private static int[][] patternSolution(Geometry geometry) {
+        int squareSize = geometry.getHeightSquare();
+        int lineSize = geometry.getLineSize();
+        int[][] solution = new int[lineSize][lineSize];
+        for (int i = 0; i < lineSize; i++) {
+            for (int j = 0; j < lineSize; j++) {
+                solution[i][j] = (squareSize * (i % squareSize) + i / squareSize + j) % lineSize + 1;
+            }
+        }
+        return solution;
+    }
+
+    private static int[][] blankEveryThirdCell(int[][] solution) {
+        int[][] sudoku = new int[solution.length][];
+        for (int i = 0; i < solution.length; i++) {
+            sudoku[i] = solution[i].clone();
+            for (int j = 0; j < solution.length; j++) {
+                if ((i * solution.length + j) % 3 == 0) {
+                    sudoku[i][j] = 0;
+                }
+            }
+        }
+        return sudoku;
+    }
+}
@@ -0,0 +1,44 @@
+package sudoku;
+
+/**
+ * Sudoku and helpers shared by tests.
+ */
+final class TestSudoku {
+
+    //Logical methods get stuck on it, only search finishes it
+    static final int[][] HARD_PUZZLE = {
+            {8, 0, 0, 0, 0, 0, 0, 0, 0},
+            {0, 0, 3, 6, 0, 0, 0, 0, 0},
+            {0, 7, 0, 0, 9, 0, 2, 0, 0},
+
+            {0, 5, 0, 0, 0, 7, 0, 0, 0},
+            {0, 0, 0, 0, 4, 5, 7, 0, 0},
+            {0, 0, 0, 1, 0, 0, 0, 3, 0},
+
+            {0, 0, 1, 0, 0, 0, 0, 6, 8},
+            {0, 0, 8, 5, 0, 0, 0, 1, 0},
+            {0, 9, 0, 0, 0, 0, 4, 0, 0}};
+
+    private TestSudoku() {
+    }
+
+    static int[][] copy(int[][] sudoku) {
+        int[][] result = new int[sudoku.length][];
+        for (int i = 0; i < sudoku.length; i++) {
+            result[i] = sudoku[i].clone();
+        }
+        return result;
+    }
+
+    static int countEmptyCells(int[][] sudoku) {
+        int result = 0;
+        for (int[] line : sudoku) {
+            for (int number : line) {
+                if (number == 0) {
+                    result++;
+                }
+            }
+        }
+        return result;
+    }
+}
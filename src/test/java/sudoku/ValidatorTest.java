@@ -0,0 +1,111 @@
+package sudoku;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static sudoku.TestSudoku.copy;
+
+public class ValidatorTest {
+
+    private static final int[][] SOLUTION = {
+            {1, 5, 4, 2, 9, 3, 6, 7, 8},
+            {6, 2, 7, 5, 1, 8, 3, 9, 4},
+            {8, 9, 3, 4, 6, 7, 5, 1, 2},
+
+            {7, 4, 5, 9, 2, 6, 8, 3, 1},
+            {2, 6, 8, 1, 3, 4, 7, 5, 9},
+            {9, 3, 1, 7, 8, 5, 2, 4, 6},
+
+            {5, 7, 6, 8, 4, 9, 1, 2, 3},
+            {3, 1, 9, 6, 5, 2, 4, 8, 7},
+            {4, 8, 2, 3, 7, 1, 9, 6, 5}};
+
+    private final Validator validator = new Validator();
+
+    @Test
+    public void shouldFindRepeatedAndMissingNumbers() {
+        assertTrue(validator.isValid(SOLUTION));
+
+        int[][] grid = copy(SOLUTION);
+        grid[4][4] = 0;
+        assertFalse(validator.isValid(grid));
+        grid[4][4] = 10;
+        assertFalse(validator.isValid(grid));
+
+        //Swapped numbers keep rows correct, but break columns and squares
+        grid = copy(SOLUTION);
+        grid[0][0] = SOLUTION[0][1];
+        grid[0][1] = SOLUTION[0][0];
+        assertFalse(validator.isValid(grid));
+
+        //Swapped columns of different stacks keep rows and columns correct, but break squares
+        grid = copy(SOLUTION);
+        for (int[] line : grid) {
+            int value = line[0];
+            line[0] = line[3];
+            line[3] = value;
+        }
+        assertFalse(validator.isValid(grid));
+        assertFalse(validator.isValid(new int[9][8]));
+    }
+
+    @Test
+    public void shouldValidateBufferOfGridsInParallel() {
+        List<GeneratedPuzzle> generated = new Generator(9).generate(0, 100);
+        byte[] grids = new byte[generated.size() * 81];
+        boolean[] expected = new boolean[generated.size()];
+        for (int k = 0; k < generated.size(); k++) {
+            int[][] solution = generated.get(k).getSolution();
+            for (int i = 0; i < 81; i++) {
+                grids[k * 81 + i] = (byte) solution[i / 9][i % 9];
+            }
+            expected[k] = k % 7 != 0;
+            if (!expected[k]) {
+                grids[k * 81 + k % 81] = (byte) (solution[k % 81 / 9][k % 9] % 9 + 1);
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        boolean[] parallelResult = new Validator(executor, 4, Geometry.STANDARD).validate(grids);
+        executor.shutdown();
+
+        assertArrayEquals(expected, validator.validate(grids));
+        assertArrayEquals(expected, parallelResult);
+    }
+
+    @Test
+    public void shouldValidatePackedRecords() {
+        List<int[][]> grids = new ArrayList<>();
+        for (GeneratedPuzzle generated : new Generator(10).generate(0, 20)) {
+            grids.add(generated.getSolution());
+        }
+        grids.set(3, copy(grids.get(3)));
+        grids.get(3)[8][8] = 0;
+        grids.set(4, copy(grids.get(4)));
+        grids.get(4)[8][8] = grids.get(4)[8][7];
+        ByteBuffer heapBuffer = new PackedFormat().encode(grids);
+        ByteBuffer records = ByteBuffer.allocateDirect(heapBuffer.remaining() + 1);
+        records.put((byte) 0xFF).put(heapBuffer);
+        records.position(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        boolean[] parallelResult = new Validator(executor, 4, Geometry.STANDARD).validate(records);
+        executor.shutdown();
+
+        boolean[] result = validator.validate(records);
+        for (int i = 0; i < grids.size(); i++) {
+            assertEquals(i != 3 && i != 4, result[i]);
+        }
+        assertArrayEquals(result, parallelResult);
+        assertEquals(1, records.position());
+    }
+}